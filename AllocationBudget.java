@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ *	Class AllocationBudget. Guards the steady-state protocol loop against hot-path allocations: runs a daemon through a synthetic steady-state workload and fails if it allocates more than a declared budget.
+ *	Usage: java AllocationBudget [&lt;packets&gt; [&lt;bytes per packet&gt; &lt;bytes per cycle&gt;]]
+ *	The daemon runs on a SimulatedScheduler, its packets are discarded, and its neighbors' updates are fed through replayPacket, so that the whole loop runs on the calling thread.
+ *	Two phases are measured after a warm-up: packets received with the time frozen (decoding and routing table update), then periodic cycles (timers, update encoding and sending, plus the neighbors' updates of the cycle).
+ *	The allocated bytes are measured on the calling thread with com.sun.management.ThreadMXBean, along with the number of garbage collections. The program exits with status 1 if a budget is exceeded.
+ *	@see SimulatedScheduler
+ *	@see Daemon#replayPacket(ByteBuffer datagram)
+ */
+public class AllocationBudget {
+
+	final private static int ROUTER_ID = 1;
+	final private static int NEIGHBORS = 3;
+	final private static int ROUTES = 60;
+	final private static int FIRST_DESTINATION = 1000;
+	final private static int MAX_ENTRIES = 25;
+	final private static long PERIODIC_INTERVAL = 5000;
+	final private static long HELLO_INTERVAL = 200;
+	final private static int WARMUP_CYCLES = 2000;
+	final private static int CYCLES = 1000;
+	final private static long DEFAULT_PACKETS = 200000;
+	final private static long DEFAULT_PACKET_BUDGET = 16;
+	final private static long DEFAULT_CYCLE_BUDGET = 512;
+
+	private SimulatedScheduler scheduler = new SimulatedScheduler(0);
+	private Daemon daemon;
+	private ByteBuffer[] updates;
+	private ByteBuffer[] hellos;
+	private long sent = 0;
+
+	/**
+	 *	Class constructor.
+	 *	Builds a router with NEIGHBORS neighbors and the updates they send: each neighbor advertises the same ROUTES destinations at a different cost, MAX_ENTRIES per datagram.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public AllocationBudget() throws IOException {
+		int[][] output_ports = new int[NEIGHBORS][];
+		for(int i = 0; i < NEIGHBORS; i++) {
+			output_ports[i] = new int[] {5000 + i, i + 1, ROUTER_ID + i + 1};
+		}
+		daemon = new Daemon(ROUTER_ID, new int[0], output_ports, scheduler);
+		daemon.setVerbose(false);
+		daemon.setTransport(new Transport() {
+			@Override
+			public int send(ByteBuffer datagram, int port) {
+				int length = datagram.remaining();
+				datagram.position(datagram.limit());
+				sent++;
+				return length;
+			}
+		});
+		daemon.enableHello(HELLO_INTERVAL, 3);
+
+		int datagrams = (ROUTES + MAX_ENTRIES - 1) / MAX_ENTRIES;
+		updates = new ByteBuffer[NEIGHBORS * datagrams];
+		hellos = new ByteBuffer[NEIGHBORS];
+		for(int n = 0; n < NEIGHBORS; n++) {
+			int sender = output_ports[n][2];
+			for(int d = 0; d < datagrams; d++) {
+				int from = d * MAX_ENTRIES;
+				updates[n * datagrams + d] = createUpdate(sender, from, Math.min(MAX_ENTRIES, ROUTES - from), n + 1);
+			}
+			hellos[n] = ByteBuffer.wrap(new byte[] {10, 2, 0, (byte) sender});
+		}
+	}
+
+	/**
+	 *	Program main method.
+	 *	Warms the daemon up, measures the two phases and compares them to the budgets.
+	 *	@param args Program input arguments.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		long packets = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_PACKETS;
+		long packetBudget = args.length > 2 ? Long.parseLong(args[1]) : DEFAULT_PACKET_BUDGET;
+		long cycleBudget = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_CYCLE_BUDGET;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Per-thread allocation measurement is not supported by this JVM.");
+			System.exit(1);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		AllocationBudget budget = new AllocationBudget();
+		budget.daemon.setupRoutingTable();
+		budget.daemon.startPeriodicTimer();
+		budget.runCycles(WARMUP_CYCLES);
+		budget.receivePackets(packets);
+
+		long gcs = gcCount();
+		long bytes = threads.getCurrentThreadAllocatedBytes();
+		budget.receivePackets(packets);
+		long packetBytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+		long packetGcs = gcCount() - gcs;
+
+		gcs = gcCount();
+		bytes = threads.getCurrentThreadAllocatedBytes();
+		long sentBefore = budget.sent;
+		budget.runCycles(CYCLES);
+		long cycleBytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+		long cycleGcs = gcCount() - gcs;
+
+		double perPacket = (double) packetBytes / packets;
+		double perCycle = (double) cycleBytes / CYCLES;
+		System.out.println("Routing table size: " + budget.daemon.snapshotRoutingTable().length);
+		System.out.println(String.format("Packets: %d received, %d bytes allocated (%.2f per packet, budget %d), %d GCs.", packets, packetBytes, perPacket, packetBudget, packetGcs));
+		System.out.println(String.format("Periodic cycles: %d run, %d datagrams sent, %d bytes allocated (%.2f per cycle, budget %d), %d GCs.", CYCLES, budget.sent - sentBefore, cycleBytes, perCycle, cycleBudget, cycleGcs));
+
+		if(perPacket > packetBudget || perCycle > cycleBudget) {
+			System.out.println("FAILED: allocation budget exceeded.");
+			System.exit(1);
+		}
+		System.out.println("OK");
+		System.exit(0);
+	}
+
+	/**
+	 *	Private method receivePackets. This method is called by the main method.
+	 *	Feeds the neighbors' updates to the daemon over and over, without moving the time.
+	 *	@param packets long representing the number of datagrams to feed.
+	 */
+	private void receivePackets(long packets) {
+		for(long i = 0; i < packets; i++) {
+			ByteBuffer update = updates[(int) (i % updates.length)];
+			update.rewind();
+			daemon.replayPacket(update);
+		}
+	}
+
+	/**
+	 *	Private method runCycles. This method is called by the main method.
+	 *	Runs the daemon's timers for the given number of periodic intervals, the neighbors sending their hellos every hello interval and their updates once per interval.
+	 *	@param cycles int representing the number of periodic intervals to run.
+	 */
+	private void runCycles(int cycles) {
+		for(int c = 0; c < cycles; c++) {
+			for(long t = 0; t < PERIODIC_INTERVAL; t += HELLO_INTERVAL) {
+				for(int n = 0; n < hellos.length; n++) {
+					hellos[n].rewind();
+					daemon.replayPacket(hellos[n]);
+				}
+				scheduler.advance(HELLO_INTERVAL);
+			}
+			receivePackets(updates.length);
+		}
+	}
+
+	/**
+	 *	Private static method createUpdate. This method is called by the constructor.
+	 *	Encodes a RIP response in the daemon's format.
+	 *	@param sender int representing the neighbor sending the update.
+	 *	@param from int representing the index of the first destination of the datagram.
+	 *	@param count int representing the number of destinations of the datagram.
+	 *	@param cost int representing the cost advertised for every destination.
+	 *	@return The datagram.
+	 */
+	private static ByteBuffer createUpdate(int sender, int from, int count, int cost) {
+		ByteBuffer datagram = ByteBuffer.allocate(4 + 20 * count);
+		datagram.put((byte) 2);
+		datagram.put((byte) 2);
+		datagram.put((byte) 0);
+		datagram.put((byte) sender);
+		for(int i = from; i < from + count; i++) {
+			datagram.putShort((short) 2);
+			datagram.putShort((short) 0);
+			datagram.putInt(FIRST_DESTINATION + i);
+			datagram.putInt(0);
+			datagram.putInt(sender);
+			datagram.putInt(cost);
+		}
+		datagram.flip();
+		return datagram;
+	}
+
+	/**
+	 *	Private static method gcCount. This method is called by the main method.
+	 *	@return The total number of collections run by all the garbage collectors so far.
+	 */
+	private static long gcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+}
@@ -0,0 +1,276 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *	Class ControlServer. Serves routing table queries on a local (loopback) TCP socket, off the protocol thread.
+ *	Each client sends one command per line and receives the answer either as JSON lines (default) or as compact binary records:
+ *	<ul>
+ *	<li>get &lt;destination&gt; : point lookup of one route.</li>
+ *	<li>dump [offset] [limit] : paged dump of the whole table, sorted by destination.</li>
+ *	<li>nexthop &lt;router&gt; [offset] [limit] : routes whose first hop is the given router.</li>
+ *	<li>prefix &lt;destination&gt;/&lt;length&gt; [offset] [limit] : routes whose destination shares the given leading bits.</li>
+ *	<li>stats : per-stage counters of the pipeline, as a JSON line.</li>
+ *	<li>format json|binary : output format of the following answers.</li>
+ *	<li>quit : closes the connection.</li>
+ *	</ul>
+ *	Every answer is read from a consistent snapshot of the routing table and ends with a trailer giving the number of matching routes and the offset of the next page (-1 if none).
+ *	A paged query takes its snapshot when its first page (offset 0) is asked; the next pages of the same query are read from that snapshot, held by the connection until the last page is sent. A multi-page answer is thus consistent, and the table is only copied and sorted once per query.
+ *	A binary record is a destination (int), a first hop (int), a cost (byte) and flags (byte, 1 for garbage, 2 for suppressed); the binary trailer is the int -1 followed by the total and the next offset.
+ *	@see Daemon#snapshotRoutingTable()
+ *	@see Daemon#lookupRoute(int destination)
+ *	@see Daemon#pipelineStats()
+ */
+public class ControlServer implements Runnable {
+
+	private Daemon daemon;
+	private ServerSocket serverSocket;
+	final private int DEFAULT_PAGE = 1000;
+
+	/**
+	 *	Class constructor.
+	 *	Binds the control socket on the loopback address.
+	 *	@param daemon The daemon whose routing table is queried.
+	 *	@param port int representing the TCP port of the control socket.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public ControlServer(Daemon daemon, int port) throws IOException {
+		this.daemon = daemon;
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 *	Method start.
+	 *	Starts the accepting thread as a daemon thread so that it never keeps the router alive on its own.
+	 */
+	public void start() {
+		Thread thread = new Thread(this, "control-" + serverSocket.getLocalPort());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 *	Overridden method run (from Runnable).
+	 *	Accepts the clients and serves each of them on its own thread.
+	 */
+	@Override
+	public void run() {
+		System.out.println("Control socket listening on " + serverSocket.getLocalSocketAddress());
+		while(!serverSocket.isClosed()) {
+			try {
+				final Socket client = serverSocket.accept();
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						serve(client);
+					}
+				}, "control-client");
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 *	Private method serve. This method is called by the client threads.
+	 *	Reads the commands of one client until it quits or closes the connection.
+	 *	@param client Socket connected to the client.
+	 */
+	private void serve(Socket client) {
+		boolean binary = false;
+		String heldQuery = null;
+		RoutingTableEntry[] held = null;
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream(), 64 * 1024));
+			String line;
+			while((line = in.readLine()) != null) {
+				String[] command = line.trim().split("\\s+");
+				try {
+					if(command[0].equals("quit")) {
+						break;
+					} else if(command[0].equals("format") && command.length == 2) {
+						binary = command[1].equals("binary");
+						continue;
+					} else if(command[0].equals("stats")) {
+						String stats = daemon.pipelineStats();
+						if(stats == null) {
+							writeError(out, "pipeline not running", false);
+						} else {
+							out.writeBytes(stats + "\n");
+						}
+					} else if(command[0].equals("get") && command.length == 2) {
+						RoutingTableEntry entry = daemon.lookupRoute(Integer.parseInt(command[1]));
+						RoutingTableEntry[] result = entry == null ? new RoutingTableEntry[0] : new RoutingTableEntry[] {entry};
+						writeRoutes(out, result, 0, 1, binary);
+					} else if(command[0].equals("dump") || (command[0].equals("nexthop") || command[0].equals("prefix")) && command.length >= 2) {
+						int arguments = command[0].equals("dump") ? 1 : 2;
+						int offset = pageArgument(command, arguments, 0, 0);
+						int limit = pageArgument(command, arguments + 1, DEFAULT_PAGE, 1);
+						String query = arguments == 1 ? command[0] : command[0] + " " + command[1];
+						if(held == null || offset == 0 || !query.equals(heldQuery)) {
+							held = querySnapshot(command);
+							heldQuery = query;
+						}
+						if(writeRoutes(out, held, offset, limit, binary) == -1) {
+							held = null;
+							heldQuery = null;
+						}
+					} else {
+						writeError(out, "unknown command: " + line, binary);
+					}
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					writeError(out, "malformed command: " + line, binary);
+				}
+				out.flush();
+			}
+			client.close();
+		} catch (IOException e) {
+			// the client went away, nothing else to do.
+		}
+	}
+
+	/**
+	 *	Private method pageArgument. This method is called by the method serve.
+	 *	Reads an optional offset or limit argument of a command.
+	 *	The limit is raised to at least 1, so that a client following the next offset of the pages always moves forward.
+	 *	@param command Array of String representing the split command.
+	 *	@param index int representing the position of the argument.
+	 *	@param defaultValue int returned if the argument is missing.
+	 *	@param minimum int representing the lowest value returned.
+	 *	@return The value of the argument.
+	 */
+	private int pageArgument(String[] command, int index, int defaultValue, int minimum) {
+		if(command.length <= index) {
+			return defaultValue;
+		}
+		return Math.max(minimum, Integer.parseInt(command[index]));
+	}
+
+	/**
+	 *	Private method querySnapshot. This method is called by the method serve on the first page of a paged query.
+	 *	Takes a snapshot of the routing table and keeps the routes matching the query.
+	 *	@param command Array of String representing the split dump, nexthop or prefix command.
+	 *	@return The matching routes, sorted by destination.
+	 *	@throws NumberFormatException If the filter of the command is malformed.
+	 *	@see Daemon#snapshotRoutingTable()
+	 */
+	private RoutingTableEntry[] querySnapshot(String[] command) {
+		if(command[0].equals("nexthop")) {
+			return filterFirstHop(daemon.snapshotRoutingTable(), Integer.parseInt(command[1]));
+		}
+		if(command[0].equals("prefix")) {
+			String[] prefix = command[1].split("/");
+			int length = Integer.parseInt(prefix[1]);
+			if(length < 0 || length > 32) {
+				throw new NumberFormatException("prefix length out of range");
+			}
+			return filterPrefix(daemon.snapshotRoutingTable(), Integer.parseInt(prefix[0]), length);
+		}
+		return daemon.snapshotRoutingTable();
+	}
+
+	/**
+	 *	Private method filterFirstHop. This method is called by the method querySnapshot.
+	 *	Keeps the routes whose first hop is the given router.
+	 *	@param snapshot Array of RoutingTableEntry sorted by destination.
+	 *	@param first_hop int representing the first hop to filter on.
+	 *	@return The matching routes, still sorted by destination.
+	 */
+	private RoutingTableEntry[] filterFirstHop(RoutingTableEntry[] snapshot, int first_hop) {
+		int count = 0;
+		for(int i = 0; i < snapshot.length; i++) {
+			if(snapshot[i].getFirst_hop_id() == first_hop) {
+				snapshot[count] = snapshot[i];
+				count++;
+			}
+		}
+		RoutingTableEntry[] result = new RoutingTableEntry[count];
+		System.arraycopy(snapshot, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 *	Private method filterPrefix. This method is called by the method querySnapshot.
+	 *	Keeps the routes whose destination shares its first length bits with the given prefix.
+	 *	@param snapshot Array of RoutingTableEntry sorted by destination.
+	 *	@param prefix int representing the prefix.
+	 *	@param length int representing the number of leading bits to compare.
+	 *	@return The matching routes, still sorted by destination.
+	 */
+	private RoutingTableEntry[] filterPrefix(RoutingTableEntry[] snapshot, int prefix, int length) {
+		int mask = length == 0 ? 0 : -1 << (32 - length);
+		int count = 0;
+		for(int i = 0; i < snapshot.length; i++) {
+			if((snapshot[i].getDestination_id() & mask) == (prefix & mask)) {
+				snapshot[count] = snapshot[i];
+				count++;
+			}
+		}
+		RoutingTableEntry[] result = new RoutingTableEntry[count];
+		System.arraycopy(snapshot, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 *	Private method writeRoutes. This method is called by the method serve.
+	 *	Streams one page of routes followed by the trailer.
+	 *	@param out DataOutputStream of the client.
+	 *	@param routes Array of RoutingTableEntry (matching routes only) to page through.
+	 *	@param offset int representing the number of routes to skip.
+	 *	@param limit int representing the maximum number of routes to write.
+	 *	@param binary boolean set if the binary format is used.
+	 *	@return The offset of the next page, -1 if this page is the last one.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	private int writeRoutes(DataOutputStream out, RoutingTableEntry[] routes, int offset, int limit, boolean binary) throws IOException {
+		int total = routes.length;
+		int end = (int) Math.min((long) offset + limit, total);
+		for(int i = offset; i < end; i++) {
+			RoutingTableEntry entry = routes[i];
+			if(binary) {
+				out.writeInt(entry.getDestination_id());
+				out.writeInt(entry.getFirst_hop_id());
+				out.writeByte(entry.getCost());
+				out.writeByte((entry.isGarbage() ? 1 : 0) | (entry.isSuppressed() ? 2 : 0));
+			} else {
+				out.writeBytes("{\"destination\":" + entry.getDestination_id() + ",\"first_hop\":" + entry.getFirst_hop_id() + ",\"cost\":" + entry.getCost() + ",\"garbage\":" + entry.isGarbage() + ",\"suppressed\":" + entry.isSuppressed() + "}\n");
+			}
+		}
+		int next = end < total ? end : -1;
+		if(binary) {
+			out.writeInt(-1);
+			out.writeInt(total);
+			out.writeInt(next);
+		} else {
+			out.writeBytes("{\"total\":" + total + ",\"next\":" + next + "}\n");
+		}
+		return next;
+	}
+
+	/**
+	 *	Private method writeError. This method is called by the method serve.
+	 *	Answers a command which could not be understood.
+	 *	@param out DataOutputStream of the client.
+	 *	@param message String describing the error.
+	 *	@param binary boolean set if the binary format is used.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	private void writeError(DataOutputStream out, String message, boolean binary) throws IOException {
+		if(binary) {
+			out.writeInt(-2);
+		} else {
+			out.writeBytes("{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}\n");
+		}
+	}
+}
@@ -1,14 +1,18 @@
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  *	Class Daemon. Manages the entire routing process, including sending and receiving packets and timer management.
@@ -20,33 +24,84 @@ public class Daemon {
 	
 	private int router_id;
 	private int[][] output_ports;
-	private Map<Integer, RoutingTableEntry> routingTable = new HashMap<Integer, RoutingTableEntry>();
+	private IntMap<RoutingTableEntry> routingTable = new IntMap<RoutingTableEntry>();
 	private Selector selector;
-	private boolean periodicSend = true;
-	private Map<Integer, Timer> timeoutTimers = new HashMap<Integer, Timer>();
-	private Map<Integer, Timer> garbageTimers = new HashMap<Integer, Timer>();
+	private Scheduler scheduler;
+	private IntMap<Scheduler.Task> timeoutTimers = new IntMap<Scheduler.Task>();
+	private IntMap<Scheduler.Task> garbageTimers = new IntMap<Scheduler.Task>();
 	final private int AF_INET = 2;
-	final private int PERIODIC_UPDATE_INTERVAL = 5000;
-	final private int TIMEOUT_INTERVAL = PERIODIC_UPDATE_INTERVAL * 6;
-	final private int GARBAGE_INTERVAL = PERIODIC_UPDATE_INTERVAL * 4;
+	private long PERIODIC_UPDATE_INTERVAL = 5000;
+	private long TIMEOUT_INTERVAL = PERIODIC_UPDATE_INTERVAL * 6;
+	private long GARBAGE_INTERVAL = PERIODIC_UPDATE_INTERVAL * 4;
 	final int INFINITY = 16;
 	private ByteBuffer buffer = ByteBuffer.allocate(1024);
+	private int[] received = new int[1024];
+	private int[] line = new int[3];
+	private boolean triggerUpdate = false;
+	final private String RIP_MULTICAST_GROUP = "224.0.0.9";
+	private DatagramChannel multicastChannel = null;
+	private MembershipKey multicastMembership = null;
+	private InetSocketAddress multicastGroup = null;
+	final private int MAX_ENTRIES = 25;
+	final private long PACING_INTERVAL = 1;
+	private Scheduler.Task[] periodicTimers;
+	private Scheduler.Task pumpTimer;
+	private Transport transport = null;
+	private Pipeline pipeline = null;
+	private DatagramChannel senderChannel;
+	private boolean[] sendPending;
+	private boolean[] sendTriggered;
+	private int[][] sendSnapshot;
+	private int[] sendSnapshotSize;
+	private InetSocketAddress[] neighborAddresses;
+	private int[] sendCursor;
+	private boolean displayTable = true;
+	private boolean verbose = true;
+	private PacketRecorder recorder = null;
+	final private float FLAP_PENALTY = 1000;
+	private long DAMPING_HALF_LIFE = 0;
+	private float SUPPRESS_THRESHOLD;
+	private float REUSE_THRESHOLD;
+	private IntMap<Scheduler.Task> reuseTimers = new IntMap<Scheduler.Task>();
+	final private int HELLO_COMMAND = 10;
+	private long HELLO_INTERVAL = 0;
+	private int DETECT_MULTIPLIER;
+	private ByteBuffer helloBuffer = ByteBuffer.allocate(4);
+	private Scheduler.Task helloTimer;
+	private Scheduler.Task[] detectTimers;
+	private boolean[] adjacencyUp;
+	final private int DISPLAY_LIMIT = 100;
 	
 	/**
 	 *	Class constructor.
-	 *	Creates a channel for each input port, registers it to the Selector and initializes the timers' maps.
+	 *	Creates a daemon whose timers follow the real time.
 	 *	@param router_id int representing the unique identification of the router within which the daemon runs.
 	 *	@param input_ports Array of int representing the different input ports of the router.
 	 *	@param output_ports Array of array of int representing for each output ports of the router, the link cost and the router located at the other side of the link.
 	 *	@throws IOException If an input or output exception occured.
+	 *	@see WallClockScheduler
+	 */	
+	public Daemon(int router_id, int[] input_ports, int[][] output_ports) throws IOException{
+		this(router_id, input_ports, output_ports, new WallClockScheduler());
+	}
+	
+	/**
+	 *	Class constructor.
+	 *	Creates a channel for each input port, registers it to the Selector and initializes the per-neighbor send state (including the neighbors' socket addresses, resolved once).
+	 *	@param router_id int representing the unique identification of the router within which the daemon runs.
+	 *	@param input_ports Array of int representing the different input ports of the router.
+	 *	@param output_ports Array of array of int representing for each output ports of the router, the link cost and the router located at the other side of the link.
+	 *	@param scheduler Scheduler running the daemon's timers, possibly shared with other daemons.
+	 *	@throws IOException If an input or output exception occured.
+	 *	@see Scheduler
 	 *	@see java.nio.channels.DatagramChannel
 	 *	@see java.nio.channels.Selector
-	 *	@see java.util.Timer
 	 */	
-	public Daemon(int router_id, int[] input_ports, int[][] output_ports) throws IOException{
+	public Daemon(int router_id, int[] input_ports, int[][] output_ports, Scheduler scheduler) throws IOException{
 		super();
 		this.router_id = router_id;
 		this.output_ports = output_ports;
+		this.scheduler = scheduler;
 		selector = Selector.open();
 		
 		for(int i = 0; i < input_ports.length; i++){
@@ -54,10 +109,260 @@ public class Daemon {
 			channel.socket().bind(new InetSocketAddress(input_ports[i]));
 			channel.configureBlocking(false);
 			channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-
-			timeoutTimers.put(output_ports[i][2], new Timer());
-			garbageTimers.put(output_ports[i][2], new Timer());
 		}
+		
+		periodicTimers = new Scheduler.Task[output_ports.length];
+		pumpTimer = scheduler.newTask(new PumpHandler(this));
+		senderChannel = DatagramChannel.open();
+		sendPending = new boolean[output_ports.length];
+		sendTriggered = new boolean[output_ports.length];
+		sendSnapshot = new int[output_ports.length][];
+		sendSnapshotSize = new int[output_ports.length];
+		neighborAddresses = new InetSocketAddress[output_ports.length];
+		for(int i = 0; i < output_ports.length; i++) {
+			neighborAddresses[i] = new InetSocketAddress("localhost", output_ports[i][0]);
+		}
+		sendCursor = new int[output_ports.length];
+		Arrays.fill(sendCursor, -1);
+	}
+	
+	/**
+	 *	Method enableMulticast. This method is called in the Main class when the multicast option is set.
+	 *	Joins the RIPv2 multicast group (224.0.0.9) on the given interface so that each update is sent once to the group instead of once per neighbor.
+	 *	The datagrams received from the group are attributed to their sender through the neighbor table (output ports).
+	 *	@param port int representing the UDP port shared by all the routers of the group.
+	 *	@param interface_name String representing the name of the interface to use, null for the loopback interface.
+	 *	@throws IOException If an input or output exception occurred or if the interface does not exist.
+	 *	@see #sendPackets(boolean triggered)
+	 *	@see java.nio.channels.MembershipKey
+	 */
+	public void enableMulticast(int port, String interface_name) throws IOException {
+		NetworkInterface ni;
+		if(interface_name == null) {
+			ni = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+		} else {
+			ni = NetworkInterface.getByName(interface_name);
+		}
+		if(ni == null) {
+			throw new IOException("Unknown multicast interface: " + interface_name);
+		}
+		InetAddress group = InetAddress.getByName(RIP_MULTICAST_GROUP);
+		
+		multicastChannel = DatagramChannel.open(StandardProtocolFamily.INET);
+		multicastChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		multicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_IF, ni);
+		multicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+		multicastChannel.bind(new InetSocketAddress(port));
+		multicastMembership = multicastChannel.join(group, ni);
+		multicastChannel.configureBlocking(false);
+		multicastChannel.register(selector, SelectionKey.OP_READ);
+		multicastGroup = new InetSocketAddress(group, port);
+		System.out.println("Joined " + multicastMembership.group().getHostAddress() + " on " + multicastMembership.networkInterface().getName() + ", port " + port);
+	}
+	
+	/**
+	 *	Method startControlServer. This method is called in the Main class when the control-port option is set.
+	 *	Starts serving routing table queries on a loopback TCP socket. The full routing table is then no longer printed after each periodic update and timeout, since it can be queried instead.
+	 *	@param port int representing the TCP port of the control socket.
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see ControlServer
+	 */
+	public void startControlServer(int port) throws IOException {
+		new ControlServer(this, port).start();
+		displayTable = false;
+	}
+	
+	/**
+	 *	Method enableCapture. This method is called in the Main class when the capture option is set.
+	 *	Starts recording every received datagram, with its timestamp and source port, to a memory-mapped log. The log is closed when the program exits.
+	 *	@param file_name String representing the path of the log file.
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see PacketRecorder
+	 *	@see Replay
+	 */
+	public void enableCapture(String file_name) throws IOException {
+		recorder = new PacketRecorder(file_name);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				try {
+					recorder.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		System.out.println("Capturing received packets to " + file_name);
+	}
+	
+	/**
+	 *	Method setVerbose. This method is called by the Replay and Simulation drivers.
+	 *	Enables or disables the system output printed for each packet and timer, and the display of the routing table.
+	 *	@param verbose boolean set to print the protocol events.
+	 *	@see Replay
+	 *	@see Simulation
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+		this.displayTable = verbose;
+	}
+	
+	/**
+	 *	Method setIntervals. This method is called in the Main class when the timers option is set, and by the Simulation driver.
+	 *	Replaces the default intervals (5 s periodic update, 30 s timeout, 20 s garbage collection). Must be called before startPeriodicTimer.
+	 *	@param periodic long representing the periodic update interval, in milliseconds.
+	 *	@param timeout long representing the route timeout interval, in milliseconds.
+	 *	@param garbage long representing the garbage collection interval, in milliseconds.
+	 */
+	public void setIntervals(long periodic, long timeout, long garbage) {
+		PERIODIC_UPDATE_INTERVAL = periodic;
+		TIMEOUT_INTERVAL = timeout;
+		GARBAGE_INTERVAL = garbage;
+	}
+	
+	/**
+	 *	Method setDamping. This method is called in the Main class when the damping option is set.
+	 *	Enables route flap damping: each time a route becomes unreachable it gets a penalty of FLAP_PENALTY (half of it for a metric change), the penalty decaying exponentially with the given half-life.
+	 *	A route whose penalty reaches the suppress threshold is held down, advertised as unreachable, until its penalty decays under the reuse threshold.
+	 *	@param half_life long representing the half-life of the penalty, in milliseconds.
+	 *	@param suppress float representing the penalty above which a route is suppressed.
+	 *	@param reuse float representing the penalty under which a suppressed route is used again.
+	 *	@see #recordFlap(RoutingTableEntry route, float penalty)
+	 */
+	public void setDamping(long half_life, float suppress, float reuse) {
+		DAMPING_HALF_LIFE = half_life;
+		SUPPRESS_THRESHOLD = suppress;
+		REUSE_THRESHOLD = reuse;
+	}
+	
+	/**
+	 *	Method enableHello. This method is called in the Main class when the hello option is set, and by the Simulation driver.
+	 *	Enables the liveness detection of the neighbors: a 4-byte hello is sent to every neighbor at the given interval, and a neighbor whose hellos stop for multiplier intervals is declared down.
+	 *	The adjacency with a neighbor only starts once a first hello is received from it, so that neighbors not sending hellos are left to the route timeouts. Must be called before startPeriodicTimer.
+	 *	@param interval long representing the hello interval, in milliseconds.
+	 *	@param multiplier int representing the number of hello intervals without hello after which a neighbor is down.
+	 *	@see HelloHandler
+	 *	@see DetectHandler
+	 */
+	public void enableHello(long interval, int multiplier) {
+		HELLO_INTERVAL = interval;
+		DETECT_MULTIPLIER = multiplier;
+		helloTimer = scheduler.newTask(new HelloHandler(this));
+		detectTimers = new Scheduler.Task[output_ports.length];
+		adjacencyUp = new boolean[output_ports.length];
+		for(int i = 0; i < output_ports.length; i++) {
+			detectTimers[i] = scheduler.newTask(new DetectHandler(this, i));
+		}
+	}
+	
+	/**
+	 *	Method setTransport. This method is called by the Simulation driver.
+	 *	Sends the daemon's packets through the given transport instead of the UDP sockets. The pending updates are then paced by the scheduler instead of the main loop.
+	 *	@param transport Transport used to send the packets.
+	 *	@see Transport
+	 *	@see PumpHandler
+	 */
+	public void setTransport(Transport transport) {
+		this.transport = transport;
+	}
+	
+	/**
+	 *	Method runTimers. This method is called in the Main class and by the Pipeline's apply stage.
+	 *	Runs the timers of the daemon which have expired, on the calling thread.
+	 *	@return The number of timers run.
+	 *	@see Scheduler#runDue()
+	 */
+	public int runTimers() {
+		return scheduler.runDue();
+	}
+	
+	/**
+	 *	Method startPipeline. This method is called in the Main class when the pipeline option is set, instead of the main loop.
+	 *	Hands the daemon over to a staged pipeline: a receive thread, a decode thread, a single apply thread owning the routing table and the timers, and a send thread.
+	 *	The packets sent by the daemon go through the pipeline's send ring, and the input channels are only watched for reading.
+	 *	@param ring_size int representing the number of slots of each ring buffer, a power of two.
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see Pipeline
+	 */
+	public void startPipeline(int ring_size) throws IOException {
+		for(SelectionKey key: selector.keys()) {
+			key.interestOps(SelectionKey.OP_READ);
+		}
+		pipeline = new Pipeline(this, selector, ring_size);
+		setTransport(pipeline);
+		pipeline.start();
+	}
+	
+	/**
+	 *	Method pipelineStats. This method is called by the ControlServer.
+	 *	@return The per-stage counters of the pipeline as a JSON line, null if the pipeline is not running.
+	 *	@see Pipeline#stats()
+	 */
+	public String pipelineStats() {
+		return pipeline == null ? null : pipeline.stats();
+	}
+	
+	/**
+	 *	Method snapshotRoutingTable. This method is called by the ControlServer.
+	 *	Copies all the entries of the routing table at once, so that a query sees a consistent table whatever the protocol does meanwhile.
+	 *	@return An array of copies of the routing table's entries, sorted by destination.
+	 *	@see ControlServer
+	 */
+	public RoutingTableEntry[] snapshotRoutingTable() {
+		RoutingTableEntry[] snapshot;
+		synchronized(routingTable) {
+			snapshot = new RoutingTableEntry[routingTable.size()];
+			int i = 0;
+			for(int slot = 0; slot < routingTable.capacity(); slot++) {
+				RoutingTableEntry entry = routingTable.valueAt(slot);
+				if(entry != null) {
+					snapshot[i] = copyEntry(entry);
+					i++;
+				}
+			}
+		}
+		sortByDestination(snapshot);
+		return snapshot;
+	}
+	
+	/**
+	 *	Method lookupRoute. This method is called by the ControlServer.
+	 *	Copies the routing table's entry of one destination.
+	 *	@param destination int representing the destination to look up.
+	 *	@return A copy of the entry, null if the destination is not in the routing table.
+	 *	@see ControlServer
+	 */
+	public RoutingTableEntry lookupRoute(int destination) {
+		synchronized(routingTable) {
+			RoutingTableEntry entry = routingTable.get(destination);
+			return entry == null ? null : copyEntry(entry);
+		}
+	}
+	
+	/**
+	 *	Private method copyEntry. This method is called by the methods snapshotRoutingTable and lookupRoute.
+	 *	@param entry RoutingTableEntry to copy.
+	 *	@return A new entry holding the same values.
+	 */
+	private RoutingTableEntry copyEntry(RoutingTableEntry entry) {
+		RoutingTableEntry copy = new RoutingTableEntry(entry.getDestination_id(), entry.getFirst_hop_id(), entry.getCost());
+		copy.setGarbage(entry.isGarbage());
+		copy.setPenalty(entry.getPenalty(), entry.getPenalty_time());
+		copy.setSuppressed(entry.isSuppressed());
+		return copy;
+	}
+	
+	/**
+	 *	Private static method sortByDestination. This method is called by the methods snapshotRoutingTable and displayRoutingTable, the routing table holding its entries in no particular order.
+	 *	@param entries Array of RoutingTableEntry to sort.
+	 */
+	private static void sortByDestination(RoutingTableEntry[] entries) {
+		Arrays.sort(entries, new Comparator<RoutingTableEntry>() {
+			@Override
+			public int compare(RoutingTableEntry a, RoutingTableEntry b) {
+				return Integer.compare(a.getDestination_id(), b.getDestination_id());
+			}
+		});
 	}
 	
 	/**
@@ -73,16 +378,17 @@ public class Daemon {
 	
 	/**
 	 *	Method isSelected. This method is called in the Main class.
-	 *	Processes the selection by looping over the selected keys. Our concerns here are the cases when a selected key is readable (meaning a packet has been received) or writable (meaning the selector's channel is ready for writing, then the sending process is started).
+	 *	Processes the selection by looping over the selected keys. Our concerns here are the cases when a selected key is readable (meaning a packet has been received) or writable (meaning the selector's channel is ready for writing, then the pending updates are sent).
 	 *	@throws IOException If an input or output exception occurred.
 	 *	@see #receivePacket(DatagramChannel channel)
-	 *	@see #sendPackets(boolean triggered)
+	 *	@see #sendPackets()
 	 *	@see java.nio.channels.Selector
 	 *	@see java.nio.channels.SelectionKey
 	 *	@see java.nio.channels.DatagramChannel
 	 */
 	public void isSelected() throws IOException {
 		Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+		boolean writable = false;
 		while (selectedKeys.hasNext()) {
 			SelectionKey key = (SelectionKey) selectedKeys.next();
 						
@@ -97,124 +403,430 @@ public class Daemon {
 			} else if (key.isReadable()) {
 				receivePacket((DatagramChannel) key.channel()); 
 				
-			} else if (key.isWritable() && periodicSend) {
-				sendPackets(false);
-				periodicSend = false;
-				displayRoutingTable();
+			} else if (key.isWritable()) {
+				writable = true;
 			}
 			
 			selectedKeys.remove();
 		}
+		
+		if(writable) {
+			sendPackets();
+		}
 	}
 	
 	/**
-	 *	Synchronized method sendPackets. This method is called by the method isSelected and by the timeout's run method.
-	 *	Fills the buffer and sends it to all the router's output ports via a datagram channel.
+	 *	Private method sendSlots. This method is called by the methods startPeriodicTimer, requestTriggeredSend and sendPackets.
+	 *	Gives the number of independent update schedules: one per neighbor, or a single one when the updates are sent to the multicast group.
+	 *	@return The number of send slots in use.
+	 *	@see #enableMulticast(int port, String interface_name)
+	 */
+	private int sendSlots() {
+		return multicastChannel != null ? 1 : output_ports.length;
+	}
+	
+	/**
+	 *	Synchronized method requestSend. This method is called by the PeriodicHandler's run method and by the method requestTriggeredSend.
+	 *	Marks an update as pending for the given send slot. The update starts at the next writable selection, or once the update currently being sent on this slot is over.
+	 *	@param slot int representing the index of the neighbor in the output ports (0 in multicast mode).
 	 *	@param triggered boolean only needed for system output.
+	 *	@see #sendPackets()
+	 */
+	public synchronized void requestSend(int slot, boolean triggered) {
+		sendPending[slot] = true;
+		sendTriggered[slot] = triggered;
+		if(transport != null && !pumpTimer.isPending()) {
+			pumpTimer.reschedule(0);
+		}
+	}
+	
+	/**
+	 *	Method requestTriggeredSend. This method is called by the timeout's run method.
+	 *	Marks an update as pending for every send slot.
+	 *	@see #requestSend(int slot, boolean triggered)
+	 *	@see TimeoutHandler#run()
+	 */
+	public void requestTriggeredSend() {
+		for(int i = 0; i < sendSlots(); i++) {
+			requestSend(i, true);
+		}
+	}
+	
+	/**
+	 *	Synchronized method sendPackets. This method is called by the method isSelected.
+	 *	Sends the next datagram of every pending update, one datagram per send slot and per call.
+	 *	A routing table larger than MAX_ENTRIES is therefore split into several datagrams which are paced by the main loop instead of being sent in one burst.
+	 *	@return true if some datagrams are still to be sent, false otherwise.
 	 *	@throws IOException If an input or output exception occurred.
 	 *	@see #isSelected()
-	 *	@see #createBuffer()
-	 *	@see TimeoutHandler#run()
-	 *	@see java.nio.ByteBuffer
-	 *	@see java.nio.channels.DatagramChannel
+	 *	@see #startSendCycle(int slot)
+	 *	@see #sendDatagram(int slot)
+	 */
+	public synchronized boolean sendPackets() throws IOException {
+		boolean remaining = false;
+		for(int i = 0; i < sendSlots(); i++) {
+			if(sendCursor[i] == -1) {
+				if(!sendPending[i]) {
+					continue;
+				}
+				startSendCycle(i);
+			}
+			sendDatagram(i);
+			remaining |= sendCursor[i] != -1 || sendPending[i];
+		}
+		return remaining;
+	}
+	
+	/**
+	 *	Private method startSendCycle. This method is called by the method sendPackets.
+	 *	Takes a snapshot of the destinations of the routing table, which are then sent MAX_ENTRIES at a time.
+	 *	The snapshot array of the slot is reused from one cycle to the next, and only reallocated (twice as large) when the routing table has outgrown it.
+	 *	@param slot int representing the index of the neighbor in the output ports (0 in multicast mode).
+	 *	@see #sendPackets()
+	 */
+	private void startSendCycle(int slot) {
+		synchronized(routingTable) {
+			int[] destinations = sendSnapshot[slot];
+			if(destinations == null || destinations.length < routingTable.size()) {
+				destinations = new int[routingTable.size() * 2];
+				sendSnapshot[slot] = destinations;
+			}
+			int i = 0;
+			for(int slot_index = 0; slot_index < routingTable.capacity(); slot_index++) {
+				if(routingTable.valueAt(slot_index) != null) {
+					destinations[i] = routingTable.keyAt(slot_index);
+					i++;
+				}
+			}
+			sendSnapshotSize[slot] = i;
+		}
+		sendCursor[slot] = 0;
+		sendPending[slot] = false;
+	}
+	
+	/**
+	 *	Private method sendDatagram. This method is called by the method sendPackets.
+	 *	Fills the buffer with the next entries of the slot's snapshot and sends it to the neighbor's output port, or to the multicast group when multicast is enabled.
+	 *	@param slot int representing the index of the neighbor in the output ports (0 in multicast mode).
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see #sendPackets()
+	 *	@see #createBuffer(int[] destinations, int from, int count)
+	 *	@see #transmit(ByteBuffer datagram, int port)
+	 *	@see Transport
 	 */
-	public synchronized void sendPackets(boolean triggered) throws IOException {
+	private void sendDatagram(int slot) throws IOException {
+		int[] destinations = sendSnapshot[slot];
+		int size = sendSnapshotSize[slot];
+		int from = sendCursor[slot];
+		int count = Math.min(MAX_ENTRIES, size - from);
 		
 		buffer.clear();
+		createBuffer(destinations, from, count);
+		buffer.flip();
+		
 		String text = "periodic";
-		if(triggered) {
+		if(sendTriggered[slot]) {
 			text = "triggered";
-			
 		}
-		System.out.print("Sending " + text + " packets: ");
-		String end = ", ";
+		int bytesSent;
+		if(transport != null) {
+			bytesSent = transport.send(buffer, output_ports[slot][0]);
+		} else {
+			bytesSent = transmit(buffer, output_ports[slot][0]);
+		}
+		if(verbose) {
+			String target = multicastChannel != null ? "group " + multicastGroup.getAddress().getHostAddress() + ":" + multicastGroup.getPort() : "port " + output_ports[slot][0];
+			System.out.println("Sending " + text + " packet to " + target + ": " + bytesSent + "Bytes (entries " + (from + 1) + "-" + (from + count) + " of " + size + ").");
+		}
+		buffer.clear();
 		
+		sendCursor[slot] = from + count;
+		if(sendCursor[slot] >= size) {
+			sendCursor[slot] = -1;
+			if(slot == 0 && !sendTriggered[slot] && displayTable) {
+				System.out.println();
+				displayRoutingTable();
+			}
+		}
+	}
+	
+	/**
+	 *	Method transmit. This method is called by the method sendDatagram and by the Pipeline's send stage.
+	 *	Sends an encoded datagram to a neighbor's port through the UDP socket, or to the multicast group when multicast is enabled.
+	 *	The socket address of a neighbor's port is resolved once, in the constructor.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@param port int representing the neighbor's input port (ignored in multicast mode).
+	 *	@return The number of bytes sent.
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see #enableMulticast(int port, String interface_name)
+	 *	@see java.nio.channels.DatagramChannel
+	 */
+	public int transmit(ByteBuffer datagram, int port) throws IOException {
+		if(multicastChannel != null) {
+			return multicastChannel.send(datagram, multicastGroup);
+		}
 		for(int i = 0; i < output_ports.length; i++) {
-			String begin = "";
-			createBuffer();
-			buffer.flip();
-			DatagramChannel sender = DatagramChannel.open();
-			int bytesSent = sender.send(buffer, new InetSocketAddress("localhost", output_ports[i][0]));
-			if(i == output_ports.length-1){
-				end = ".";
-			}
-			else if(i == 0){
-				begin = bytesSent + "Bytes to ports: ";
-			}
-			System.out.print(begin + output_ports[i][0] + end);
-			sender.close();
-			buffer.clear();
-		}
-		System.out.println("\n");
-		
+			if(output_ports[i][0] == port) {
+				return senderChannel.send(datagram, neighborAddresses[i]);
+			}
+		}
+		return senderChannel.send(datagram, new InetSocketAddress("localhost", port));
 	}
 	
 	/**
-	 *	Private method createBuffer. This method is called by the method sendPackets.
-	 *	Fills the router's buffer by a RIP formatted packet.
-	 *	@see #sendPackets()
+	 *	Private method createBuffer. This method is called by the method sendDatagram.
+	 *	Fills the router's buffer by a RIP formatted packet holding the given destinations. Destinations removed from the routing table since the snapshot are skipped, and suppressed routes are advertised as unreachable.
+	 *	@param destinations Array of int representing the snapshot of the routing table's destinations.
+	 *	@param from int representing the index of the first destination to put in the packet.
+	 *	@param count int representing the number of destinations to put in the packet.
+	 *	@see #sendDatagram(int slot)
 	 *	@see java.nio.ByteBuffer
 	 */ 
-	private void createBuffer() {
+	private void createBuffer(int[] destinations, int from, int count) {
 	
-		byte[] header = new byte[4];
-		byte[] entries = new byte[20*routingTable.size()];
-		header[0] = new Integer(2).byteValue();
-		header[1] = new Integer(2).byteValue();
-		header[3] = new Integer(router_id).byteValue();
-		buffer.put(header);
-		for(int i = 0; i < routingTable.size(); i++){
-			entries[20*i+1] = new Integer(AF_INET).byteValue();
-		}
-		int i = 0;
-		for(Integer key: routingTable.keySet()) {
-			entries[20*i+7] = key.byteValue();
-			entries[20*i+15] = new Integer(routingTable.get(key).getFirst_hop_id()).byteValue();
-			entries[20*i+19] = new Integer(routingTable.get(key).getCost()).byteValue();
-			i++;
+		buffer.put((byte) 2);
+		buffer.put((byte) 2);
+		buffer.put((byte) 0);
+		buffer.put((byte) router_id);
+		synchronized(routingTable) {
+			for(int i = from; i < from + count; i++) {
+				RoutingTableEntry entry = routingTable.get(destinations[i]);
+				if(entry == null) {
+					continue;
+				}
+				buffer.putShort((short) AF_INET);
+				buffer.putShort((short) 0);
+				buffer.putInt(entry.getDestination_id());
+				buffer.putInt(0);
+				buffer.putInt(entry.getFirst_hop_id());
+				buffer.putInt(entry.isSuppressed() ? INFINITY : entry.getCost());
+			}
 		}
-		buffer.put(entries);
 	}
 	
 	/**
 	 *	Method receivePacket. This method is called by the method isSelected.
-	 *	Processes the arrival of a packet. It stores the packet in the buffer, then reads the content of the buffer and updates the routing table if the packet is consistent (drops it otherwise).
+	 *	Processes the arrival of a packet. It stores the packet in the buffer (and in the capture log if enabled), then processes the content of the buffer.
 	 *	@param channel DatagramChannel from which the packet is coming.
 	 *	@throws IOException If an input or output exception occured.
 	 *	@see #isSelected()
+	 *	@see #receiveInto(DatagramChannel channel, ByteBuffer datagram)
+	 *	@see #processBuffer()
 	 *	@see java.nio.ByteBuffer
 	 *	@see java.nio.channels.DatagramChannel
 	 */
 	public void receivePacket(DatagramChannel channel) throws IOException{
 			
-		channel.receive(buffer);
+		receiveInto(channel, buffer);
+		processBuffer();
+	}
+	
+	/**
+	 *	Method receiveInto. This method is called by the method receivePacket and by the Pipeline's receive stage.
+	 *	Receives one datagram from the channel into the given buffer, records it in the capture log if enabled, and flips the buffer.
+	 *	@param channel DatagramChannel from which the packet is coming.
+	 *	@param datagram ByteBuffer receiving the datagram.
+	 *	@return The source port of the datagram, -1 if no datagram was available.
+	 *	@throws IOException If an input or output exception occured.
+	 *	@see PacketRecorder#record(ByteBuffer datagram, int source_port)
+	 */
+	public int receiveInto(DatagramChannel channel, ByteBuffer datagram) throws IOException{
+		
+		datagram.clear();
+		SocketAddress source = channel.receive(datagram);
+		datagram.flip();
+		if(!(source instanceof InetSocketAddress)) {
+			return -1;
+		}
+		int source_port = ((InetSocketAddress) source).getPort();
+		if(recorder != null) {
+			recorder.record(datagram, source_port);
+		}
+		return source_port;
+	}
+	
+	/**
+	 *	Method replayPacket. This method is called by the Replay and Simulation drivers.
+	 *	Processes a captured datagram exactly as if it had just been received.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@see #processBuffer()
+	 *	@see Replay
+	 */
+	public void replayPacket(ByteBuffer datagram) {
+		buffer.clear();
+		buffer.put(datagram);
 		buffer.flip();
+		processBuffer();
+	}
+	
+	/**
+	 *	Private method processBuffer. This method is called by the methods receivePacket and replayPacket.
+	 *	Decodes the content of the buffer into the received array and applies it if the packet is consistent (drops it otherwise).
+	 *	@see #decodeDatagram(ByteBuffer datagram, int[] data)
+	 *	@see #applyDecoded(int[] data, int length)
+	 */
+	private void processBuffer() {
 		
-		int[] data = readReceivedPackets();
-		System.out.println("Received Packet from " + data[3]);
-		if(consistentPacket(data)){	
-			updateRoutingTable(data);
+		int length = decodeDatagram(buffer, received);
+		if(length != -1) {
+			applyDecoded(received, length);
 		}
 	}
 	
 	/**
-	 *	Private method readReceivedPackets. This method is called by the method receivePacket.
-	 *	Reads the received packets stores in the router's buffer.
-	 *	@return The content of the buffer as an array of int.
-	 *	@see #receivePacket(DatagramChannel channel)
+	 *	Method decodeDatagram. This method is called by the method processBuffer and by the Pipeline's decode stage.
+	 *	Reads a datagram and checks that it comes from a neighbor and is consistent (hellos are only checked for their length). Only reads the daemon's immutable state, so it may run on any thread.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit; it is cleared.
+	 *	@param data Array of int receiving the content of the packet, at least as long as the datagram.
+	 *	@return The length of the packet, -1 if the packet must be dropped.
+	 *	@see #readReceivedPackets(ByteBuffer datagram, int[] data)
+	 *	@see #consistentPacket(int[] data, int length)
+	 */
+	public int decodeDatagram(ByteBuffer datagram, int[] data) {
+		
+		int length = readReceivedPackets(datagram, data);
+		if(length < 4 || data[3] == router_id) {
+			// own multicast packet looped back, or runt datagram.
+			return -1;
+		}
+		if(neighborIndex(data[3]) == -1) {
+			// multicast packet from a router which is not a neighbor.
+			return -1;
+		}
+		if(data[0] == HELLO_COMMAND) {
+			return length == 4 ? length : -1;
+		}
+		if(verbose) {
+			System.out.println("Received Packet from " + data[3]);
+		}
+		if(!consistentPacket(data, length)){	
+			return -1;
+		}
+		return length;
+	}
+	
+	/**
+	 *	Method applyDecoded. This method is called by the method processBuffer and by the Pipeline's apply stage.
+	 *	Updates the routing table with a packet already checked by decodeDatagram, or refreshes the adjacency with the neighbor if the packet is a hello.
+	 *	@param data Array of int representing the content of the received packet.
+	 *	@param length int representing the length of the packet.
+	 *	@see #decodeDatagram(ByteBuffer datagram, int[] data)
+	 *	@see #updateRoutingTable(int[] data, int length)
+	 *	@see #receiveHello(int neighbor)
+	 */
+	public void applyDecoded(int[] data, int length) {
+		if(data[0] == HELLO_COMMAND) {
+			receiveHello(neighborIndex(data[3]));
+		} else {
+			updateRoutingTable(data, length);
+		}
+	}
+	
+	/**
+	 *	Private method receiveHello. This method is called by the method applyDecoded.
+	 *	Restarts the neighbor's detection timer. If the adjacency was not up, brings it up and sends the neighbor an update at once.
+	 *	Hellos are ignored if the hello option is not set.
+	 *	@param neighbor int representing the index of the neighbor in the output ports.
+	 *	@see DetectHandler
+	 */
+	private void receiveHello(int neighbor) {
+		if(HELLO_INTERVAL == 0) {
+			return;
+		}
+		detectTimers[neighbor].reschedule(HELLO_INTERVAL * DETECT_MULTIPLIER);
+		if(!adjacencyUp[neighbor]) {
+			adjacencyUp[neighbor] = true;
+			if(verbose) {
+				System.out.println("----- Adjacency with " + output_ports[neighbor][2] + " up -----");
+			}
+			requestSend(multicastChannel != null ? 0 : neighbor, true);
+		}
+	}
+	
+	/**
+	 *	Private method adjacencyDown. This method is called by the DetectHandler's run method.
+	 *	Invalidates in a single pass all the routes learned from a neighbor which stopped sending hellos: its column of the Adj-RIB-In is cleared, and each route using it as first hop either fails over to another neighbor or becomes unreachable (garbage timer started).
+	 *	A single triggered update is then requested for all the routes.
+	 *	@param neighbor int representing the index of the neighbor in the output ports.
+	 *	@see #failover(RoutingTableEntry route, int neighbor, long now)
+	 *	@see #startGarbageTimer(int route_id)
+	 *	@see #requestTriggeredSend()
+	 */
+	private void adjacencyDown(int neighbor) {
+		adjacencyUp[neighbor] = false;
+		int id = output_ports[neighbor][2];
+		long now = scheduler.now();
+		int invalidated = 0;
+		synchronized(routingTable) {
+			for(int slot = 0; slot < routingTable.capacity(); slot++) {
+				RoutingTableEntry route = routingTable.valueAt(slot);
+				if(route == null || !route.hasRibIn()) {
+					continue;
+				}
+				route.setRibIn(neighbor, INFINITY, now);
+				if(route.getFirst_hop_id() != id || route.getCost() == INFINITY) {
+					continue;
+				}
+				int alternative = selectAlternative(route, -1, now);
+				if(alternative != -1) {
+					failover(route, alternative, now);
+				} else {
+					timeoutTimers.get(route.getDestination_id()).cancel();
+					startGarbageTimer(route.getDestination_id());
+					recordFlap(route, FLAP_PENALTY);
+					route.setCost(INFINITY);
+				}
+				invalidated++;
+			}
+		}
+		if(verbose) {
+			System.out.println("----- Adjacency with " + id + " down, " + invalidated + " routes invalidated -----");
+		}
+		if(invalidated > 0) {
+			requestTriggeredSend();
+			if(displayTable) {
+				displayRoutingTable();
+			}
+		}
+	}
+	
+	/**
+	 *	Private method neighborIndex. This method is called by the methods decodeDatagram and updateLine.
+	 *	Looks for the given router in the neighbor table (output ports).
+	 *	@param id int representing the router to look for.
+	 *	@return The index of the neighbor in the output ports, -1 if the router is not a neighbor.
+	 *	@see #decodeDatagram(ByteBuffer datagram, int[] data)
+	 *	@see #updateLine(int id, int[] line)
+	 */
+	private int neighborIndex(int id) {
+		for(int i = 0; i < output_ports.length; i++){
+			if(output_ports[i][2] == id){
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 *	Private method readReceivedPackets. This method is called by the method decodeDatagram.
+	 *	Reads a received packet stored in a buffer into the given array, without allocating.
+	 *	@param datagram ByteBuffer holding the packet.
+	 *	@param data Array of int receiving the content of the buffer.
+	 *	@return The number of bytes read.
+	 *	@see #decodeDatagram(ByteBuffer datagram, int[] data)
 	 *	@see java.nio.ByteBuffer
 	 */
-	private int[] readReceivedPackets(){
+	private int readReceivedPackets(ByteBuffer datagram, int[] data){
 		
-		int[] data = new int[buffer.limit()];
+		int length = Math.min(datagram.remaining(), data.length);
 		int i = 0;
 	
-		while(buffer.hasRemaining()){
-			data[i] = (int) buffer.get();
+		while(i < length){
+			data[i] = (int) datagram.get();
 			i++;
 		}
 		
-		buffer.clear();
+		datagram.clear();
 		
 		//Uncomment the paragraph to display the content of the received packet.
 		/*
@@ -223,7 +835,7 @@ public class Daemon {
 		System.out.print("Version: " + data[1] + "     ");
 		System.out.println("Sender: " + data[3] + "     ");
 		i = 0;
-		while(20*i+4 < data.length){
+		while(20*i+4 < length){
 			System.out.println("----------Entry " + i + "---------");
 			System.out.println("AFI: " + data[20*i+5] + "     ");
 			System.out.println("RouterID: " + data[20*i+11] + "     ");
@@ -234,22 +846,23 @@ public class Daemon {
 		System.out.println();
 		*/
 		
-		return data;
+		return length;
 	}
 	
 	/**
-	 *	Private method consistentPacket. This method is called by the method receivePacket.
+	 *	Private method consistentPacket. This method is called by the method decodeDatagram.
 	 *	Processes all the necessary check on a received packet (length, fixed values, AFI, metric range).
 	 *	@param data Array of int representing the content of the received packet.
+	 *	@param length int representing the length of the packet.
 	 *	@return true if the packet is consistent, false otherwise.
-	 *	@see #receivePacket(DatagramChannel channel)
-	 *	@see #checkAFI(int[] data)
-	 *	@see #checkMetricRange(int[] data)
+	 *	@see #decodeDatagram(ByteBuffer datagram, int[] data)
+	 *	@see #checkAFI(int[] data, int length)
+	 *	@see #checkMetricRange(int[] data, int length)
 	 */
-	private boolean consistentPacket(int[] data){
+	private boolean consistentPacket(int[] data, int length){
 	
-		if(data.length % 20 != 4){
-			System.out.println("Wrong packet length: " + data.length);
+		if(length % 20 != 4){
+			System.out.println("Wrong packet length: " + length);
 			return false;
 		}
 		if(data[0] != 2 || data[1] != 2){
@@ -258,15 +871,15 @@ public class Daemon {
 			System.out.println("Version: " + data[1]);
 			return false;
 		}
-		if(!checkAFI(data)){
+		if(!checkAFI(data, length)){
 			System.out.println("Wrong AFI: ");
-			for(int i = 0; i < (data.length-4)/20; i++)
+			for(int i = 0; i < (length-4)/20; i++)
 				System.out.println(data[20*i+5]);
 			return false;
 		}
-		if(!checkMetricRange(data)){
+		if(!checkMetricRange(data, length)){
 			System.out.println("Wrong metric range: ");
-			for(int i = 0; i < (data.length-4)/20; i++)
+			for(int i = 0; i < (length-4)/20; i++)
 				System.out.println(data[20*i+19]);
 			return false;
 		}
@@ -277,12 +890,13 @@ public class Daemon {
 	 *	Private method checkAFI. This method is called by the method consistentPacket.
 	 *	Checks if the AFI of the received packet is correct or not.
 	 *	@param data Array of int representing the content of the received packet.
+	 *	@param length int representing the length of the packet.
 	 *	@return true if the AFI of the received packet is correct, false otherwise.
-	 *	@see #consistentPacket(int[] data)
+	 *	@see #consistentPacket(int[] data, int length)
 	 */
-	private boolean checkAFI(int[] data){
+	private boolean checkAFI(int[] data, int length){
 	
-		for(int i = 0; i < (data.length-4)/20; i++)
+		for(int i = 0; i < (length-4)/20; i++)
 			if(data[20*i+5] != AF_INET)
 				return false;
 		return true;
@@ -292,32 +906,41 @@ public class Daemon {
 	 *	Private method checkMetricRange. This method is called by the method consistentPacket.
 	 *	Checks if the metric range of the received packet is correct or not.
 	 *	@param data Array of int representing the content of the received packet.
+	 *	@param length int representing the length of the packet.
 	 *	@return true if the metric range of the received packet is correct, false otherwise.
-	 *	@see #consistentPacket(int[] data)
+	 *	@see #consistentPacket(int[] data, int length)
 	 */
-	private boolean checkMetricRange(int[] data){
+	private boolean checkMetricRange(int[] data, int length){
 	
-		for(int i = 0; i < (data.length-4)/20; i++)
+		for(int i = 0; i < (length-4)/20; i++)
 			if(data[20*i+19] < 0 || data[20*i+19] > INFINITY)
 				return false;
 		return true;
 	}
 	
 	/**
-	 *	Private method updateRoutingTable. This method is called by the method receivePacket.
-	 *	Updates the router's routing table after each consistent received packed.
+	 *	Private method updateRoutingTable. This method is called by the method applyDecoded.
+	 *	Updates the router's routing table after each consistent received packed. The destinations are read on their 4 bytes.
+	 *	The whole packet is applied under the routing table's lock, so that the ControlServer's snapshots never see it half applied.
+	 *	If some routes failed over to another neighbor or became unreachable, a single triggered update is requested once the lock is released.
 	 *	@param data Array of int representing the content of the received packet.
-	 *	@see #receivePacket(DatagramChannel channel)
+	 *	@param length int representing the length of the packet.
+	 *	@see #applyDecoded(int[] data, int length)
 	 *	@see #updateLine(int id, int[] line)
 	 */
-	private void updateRoutingTable(int[] data){
+	private void updateRoutingTable(int[] data, int length){
 		
-		int[] line = new int[3];
-		for(int i = 0; i < (data.length-4)/20; i++){
-			line[0] = data[20*i+11];
-			line[1] = data[20*i+19];
-			line[2] = data[20*i+23];
-			updateLine(data[3], line);
+		triggerUpdate = false;
+		synchronized(routingTable) {
+			for(int i = 0; i < (length-4)/20; i++){
+				line[0] = (data[20*i+8] & 0xFF) << 24 | (data[20*i+9] & 0xFF) << 16 | (data[20*i+10] & 0xFF) << 8 | (data[20*i+11] & 0xFF);
+				line[1] = data[20*i+19];
+				line[2] = data[20*i+23];
+				updateLine(data[3], line);
+			}
+		}
+		if(triggerUpdate) {
+			requestTriggeredSend();
 		}
 		
 		//displayRoutingTable();
@@ -327,37 +950,65 @@ public class Daemon {
 	 *	Private method updateLine. This method is called by the method updateRoutingTable.
 	 *	Updates one line of the router's routing table. 
 	 *	Also handles the timers process: reseting of the timeout timer and starting the garbage timer depending on the line's content.
+	 *	A route becoming unreachable, or whose metric changes through the same first hop, is penalized for flap damping.
+	 *	Every advertised metric is kept in the route's Adj-RIB-In, so that when the best path gets worse, a better path through another neighbor is used at once.
+	 *	Local routes (the route to the router itself and the static routes) are left untouched.
+	 *	A route the neighbor reaches through this router (its advertised first hop is router_id) is taken as unreachable, so that it never becomes a failover path back through ourselves.
 	 *	@param id int representing the route destination.
 	 *	@param line Array of int representing, in order, the destination, the first hop and the cost of the route.
-	 *	@see #updateRoutingTable(int[] data)
+	 *	@see #updateRoutingTable(int[] data, int length)
 	 *	@see #resetTimeoutTimer(int route_id)
 	 *	@see #startGarbageTimer(int route_id)
+	 *	@see #recordFlap(RoutingTableEntry route, float penalty)
+	 *	@see #failover(RoutingTableEntry route, int neighbor, long now)
 	 *	@see RoutingTableEntry
-	 *	@see java.util.Timer
+	 *	@see Scheduler.Task
 	 */
 	private void updateLine(int id, int[] line){	
 		int destination = line[0];
 		int cost = line[2];
-		int index_port = -1;
-		
-		for(int i = 0; i < output_ports.length; i++){
-			if(output_ports[i][2] == id){
-				index_port = i;
-				break;
-			}
-		}
+		int index_port = neighborIndex(id);
 		
 		int metric = Math.min(cost + output_ports[index_port][1], INFINITY);
+		if(line[1] == router_id) {
+			// poison reverse: the neighbor's path goes through this router, it is no path for us.
+			metric = INFINITY;
+		}
 		
 		if(routingTable.containsKey(destination)) {
 			
 			RoutingTableEntry route = routingTable.get(destination);
+			if(route.getFirst_hop_id() == router_id) {
+				// local route (self or static), never replaced by a learned one.
+				return;
+			}
+			long now = scheduler.now();
+			if(route.hasRibIn()) {
+				route.setRibIn(index_port, metric, now);
+			}
 			
-			if(route.getFirst_hop_id() == id) {
+			if(route.getFirst_hop_id() == id && !route.isGarbage()) {
+				// a route being garbage collected keeps its garbage timer, repeated INFINITY advertisements must not arm a second timeout.
 				resetTimeoutTimer(destination);
 				//System.out.println("Reseting timer for: " + destination);
 			}
+			if(route.getFirst_hop_id() == id && metric > route.getCost() && route.hasRibIn()) {
+				// the best path got worse, another neighbor may now offer a better one.
+				int alternative = selectAlternative(route, index_port, now);
+				if(alternative != -1 && route.getRibInMetric(alternative) < metric) {
+					failover(route, alternative, now);
+					triggerUpdate = true;
+					return;
+				}
+			}
 			if((route.getFirst_hop_id() == id && metric != route.getCost()) || metric < route.getCost()) {
+				if(metric == INFINITY) {
+					// the route is lost, tell the neighbors now instead of at the next periodic update.
+					triggerUpdate |= !route.isSuppressed();
+					recordFlap(route, FLAP_PENALTY);
+				} else if(route.getFirst_hop_id() == id && route.getCost() != INFINITY) {
+					recordFlap(route, FLAP_PENALTY / 2);
+				}
 				route.setCost(metric);
 				route.setFirst_hop_id(id);
 				
@@ -374,14 +1025,108 @@ public class Daemon {
 		} else {
 			
 			if(metric != INFINITY) {
-				routingTable.put(destination, new RoutingTableEntry(destination, id, metric));
-				garbageTimers.put(destination, new Timer());
-				timeoutTimers.put(destination, new Timer());
+				RoutingTableEntry route = new RoutingTableEntry(destination, id, metric);
+				route.allocateRibIn(output_ports.length, INFINITY);
+				route.setRibIn(index_port, metric, scheduler.now());
+				routingTable.put(destination, route);
+				garbageTimers.put(destination, scheduler.newTask(new GarbageHandler(this, destination)));
+				timeoutTimers.put(destination, scheduler.newTask(new TimeoutHandler(this, destination)));
 				resetTimeoutTimer(destination);
 			}
 		}
 	}
 	
+	/**
+	 *	Private method selectAlternative. This method is called by the methods updateLine and adjacencyDown, and by the TimeoutHandler's run method.
+	 *	Looks in the route's Adj-RIB-In for the best path still valid (heard less than TIMEOUT_INTERVAL ago) through another neighbor.
+	 *	@param route RoutingTableEntry holding the Adj-RIB-In.
+	 *	@param excluded int representing the index of the neighbor to ignore, -1 for none.
+	 *	@param now long representing the current time, in milliseconds.
+	 *	@return The index of the neighbor in the output ports, -1 if no neighbor offers a valid path.
+	 *	@see #failover(RoutingTableEntry route, int neighbor, long now)
+	 */
+	private int selectAlternative(RoutingTableEntry route, int excluded, long now) {
+		int best = -1;
+		for(int i = 0; i < output_ports.length; i++) {
+			if(i == excluded || route.getRibInMetric(i) >= INFINITY || now - route.getRibInTime(i) >= TIMEOUT_INTERVAL) {
+				continue;
+			}
+			if(best == -1 || route.getRibInMetric(i) < route.getRibInMetric(best)) {
+				best = i;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 *	Private method failover. This method is called by the methods updateLine and adjacencyDown, and by the TimeoutHandler's run method.
+	 *	Switches the route to the path advertised by another neighbor at once, instead of waiting for the timeout and garbage intervals.
+	 *	The timeout timer is set to expire when the alternative path itself would have timed out.
+	 *	@param route RoutingTableEntry to switch.
+	 *	@param neighbor int representing the index of the new first hop in the output ports.
+	 *	@param now long representing the current time, in milliseconds.
+	 *	@see #selectAlternative(RoutingTableEntry route, int excluded, long now)
+	 */
+	private void failover(RoutingTableEntry route, int neighbor, long now) {
+		int destination = route.getDestination_id();
+		route.setFirst_hop_id(output_ports[neighbor][2]);
+		route.setCost(route.getRibInMetric(neighbor));
+		route.setGarbage(false);
+		garbageTimers.get(destination).cancel();
+		timeoutTimers.get(destination).reschedule(TIMEOUT_INTERVAL - (now - route.getRibInTime(neighbor)));
+		if(verbose) {
+			System.out.println("----- Failover for: " + destination + ", new first hop: " + route.getFirst_hop_id() + ", cost: " + route.getCost() + " -----");
+		}
+	}
+	
+	/**
+	 *	Private method recordFlap. This method is called by the methods updateLine and adjacencyDown, and by the TimeoutHandler's run method.
+	 *	Adds a penalty to the route's decayed penalty and suppresses the route if the suppress threshold is reached. Does nothing if flap damping is disabled.
+	 *	@param route RoutingTableEntry which flapped.
+	 *	@param penalty float representing the penalty to add.
+	 *	@see #setDamping(long half_life, float suppress, float reuse)
+	 *	@see ReuseHandler
+	 */
+	private void recordFlap(RoutingTableEntry route, float penalty) {
+		if(DAMPING_HALF_LIFE == 0) {
+			return;
+		}
+		long now = scheduler.now();
+		float decayed = decayedPenalty(route, now) + penalty;
+		route.setPenalty(decayed, now);
+		if(!route.isSuppressed() && decayed >= SUPPRESS_THRESHOLD) {
+			route.setSuppressed(true);
+			if(verbose) {
+				System.out.println("----- Route " + route.getDestination_id() + " suppressed (penalty " + (int) decayed + ") -----");
+			}
+			Scheduler.Task reuseTimer = reuseTimers.get(route.getDestination_id());
+			if(reuseTimer == null) {
+				reuseTimer = scheduler.newTask(new ReuseHandler(this, route.getDestination_id()));
+				reuseTimers.put(route.getDestination_id(), reuseTimer);
+			}
+			reuseTimer.reschedule(reuseDelay(decayed));
+		}
+	}
+	
+	/**
+	 *	Private method decayedPenalty. This method is called by the method recordFlap and by the ReuseHandler's run method.
+	 *	@param route RoutingTableEntry holding the penalty.
+	 *	@param now long representing the current time, in milliseconds.
+	 *	@return The route's penalty decayed from its last update to now.
+	 */
+	private float decayedPenalty(RoutingTableEntry route, long now) {
+		return (float) (route.getPenalty() * Math.pow(0.5, (double) (now - route.getPenalty_time()) / DAMPING_HALF_LIFE));
+	}
+	
+	/**
+	 *	Private method reuseDelay. This method is called by the method recordFlap and by the ReuseHandler's run method.
+	 *	@param penalty float representing the current penalty of a suppressed route.
+	 *	@return The time (in milliseconds) the penalty takes to decay to the reuse threshold.
+	 */
+	private long reuseDelay(float penalty) {
+		return (long) Math.ceil(DAMPING_HALF_LIFE * Math.log(penalty / REUSE_THRESHOLD) / Math.log(2));
+	}
+	
 	/**
 	 *	Method setupRoutingTable. This method is called in the Main class.
 	 *	Set up the router's routing table by entering the first entry (route to himself).
@@ -390,42 +1135,92 @@ public class Daemon {
 	 */
 	public void setupRoutingTable() {
 		System.out.println("Setting routing table.");
-		routingTable.put(router_id, new RoutingTableEntry(router_id, router_id, 0));
+		synchronized(routingTable) {
+			routingTable.put(router_id, new RoutingTableEntry(router_id, router_id, 0));
+		}
 		displayRoutingTable();
 		
 	}
 	
+	/**
+	 *	Method importStaticRoutes. This method is called in the Main class when the static-routes option is set, and by the Simulation driver.
+	 *	Loads a route file and merges its routes into the routing table in a single pass. The routes are local (first hop is the router itself): they have no timer, are never replaced by a learned route, and are advertised by the normal periodic updates.
+	 *	A learned route to the same destination is replaced, its timers being dropped.
+	 *	@param file_name String representing the path of the route file (binary or text).
+	 *	@throws IOException If an input or output exception occurred.
+	 *	@see StaticRoutes
+	 */
+	public void importStaticRoutes(String file_name) throws IOException {
+		long start = System.nanoTime();
+		StaticRoutes routes = StaticRoutes.load(file_name);
+		if(routes == null) {
+			return;
+		}
+		int imported = 0;
+		synchronized(routingTable) {
+			for(int i = 0; i < routes.size(); i++) {
+				int destination = routes.destination(i);
+				if(destination == router_id) {
+					continue;
+				}
+				RoutingTableEntry route = routingTable.get(destination);
+				if(route != null && route.getFirst_hop_id() != router_id) {
+					timeoutTimers.remove(destination).cancel();
+					garbageTimers.remove(destination).cancel();
+					Scheduler.Task reuseTimer = reuseTimers.remove(destination);
+					if(reuseTimer != null) {
+						reuseTimer.cancel();
+					}
+				}
+				routingTable.put(destination, new RoutingTableEntry(destination, router_id, routes.cost(i)));
+				imported++;
+			}
+		}
+		System.out.println("Imported " + imported + " static routes from " + file_name + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+	}
+	
 	/**
 	 *	Method startPeriodicTimer. This method is called in the Main class.
-	 *	Starts the "scheduled at fixed rate" timer.
+	 *	Starts one periodic timer per send slot. The first updates of the neighbors are spread evenly across the update interval, so that the neighbors are not all sent to in the same burst.
+	 *	Also starts sending the hellos if the hello option is set.
 	 *	@see Main
 	 *	@see PeriodicHandler
-	 *	@see java.util.Timer#scheduleAtFixedRate(TimerTask task, long delay, long period)
+	 *	@see Scheduler.Task#reschedule(long delay)
 	 */
 	public void startPeriodicTimer() {
-		Timer t = new Timer();
-		PeriodicHandler task = new PeriodicHandler(this);
-		// We want a random element to the timer interval, in the range
-		// [0.8*interval, 1.2*interval]
-		t.scheduleAtFixedRate(task, 0, (long) (PERIODIC_UPDATE_INTERVAL * (0.8 + Math.random() * 0.4)));
+		int slots = sendSlots();
+		for(int i = 0; i < slots; i++) {
+			periodicTimers[i] = scheduler.newTask(new PeriodicHandler(this, i));
+			periodicTimers[i].reschedule(PERIODIC_UPDATE_INTERVAL * i / slots);
+		}
+		if(HELLO_INTERVAL > 0) {
+			helloTimer.reschedule(0);
+		}
+	}
+	
+	/**
+	 *	Private method nextPeriodicDelay. This method is called by the PeriodicHandler's run method.
+	 *	Draws a fresh random delay before the next periodic update of a slot, so that routers do not drift into synchronization (RFC 2453, section 3.8).
+	 *	@return A delay in the range [0.8*interval, 1.2*interval].
+	 *	@see PeriodicHandler#run()
+	 */
+	private long nextPeriodicDelay() {
+		return (long) (PERIODIC_UPDATE_INTERVAL * (0.8 + scheduler.random().nextDouble() * 0.4));
 	}
 	
 	/**
-	 *	Method startGarbageTimer. This method is called by the method updateLine and by the TimeoutHandler's run method.
+	 *	Method startGarbageTimer. This method is called by the methods updateLine and adjacencyDown, and by the TimeoutHandler's run method.
 	 *	Starts the garbage timer for the given route.
 	 *	@param route_id int representing the destination about which the garbage timer runs.
 	 *	@see #updateLine(int id, int[] line)
 	 *	@see GarbageHandler
-	 *	@see java.util.Timer#schedule(TimerTask task, long delay)
+	 *	@see Scheduler.Task#reschedule(long delay)
 	 *	@see TimeoutHandler#run()
 	 */
 	public void startGarbageTimer(int route_id) {
 		//System.out.println("----- Garbage timer started, Route: " + route_id + " -----");
 		routingTable.get(route_id).setGarbage(true);
-		garbageTimers.get(route_id).cancel();
-		garbageTimers.replace(route_id, new Timer());
-		GarbageHandler task = new GarbageHandler(this, route_id);
-		garbageTimers.get(route_id).schedule(task, GARBAGE_INTERVAL);
+		garbageTimers.get(route_id).reschedule(GARBAGE_INTERVAL);
 	}
 	
 	/**
@@ -434,52 +1229,166 @@ public class Daemon {
 	 *	@param route_id int representing the destination about which the timeout timer runs.
 	 *	@see #updateLine(int id, int[] line)
 	 *	@see TimeoutHandler
-	 *	@see java.util.Timer#schedule(TimerTask task, long delay)
+	 *	@see Scheduler.Task#reschedule(long delay)
 	 */
 	public void resetTimeoutTimer(int route_id) {
-		timeoutTimers.get(route_id).cancel();
-		timeoutTimers.replace(route_id, new Timer());
-		TimeoutHandler task = new TimeoutHandler(this, route_id);
-		timeoutTimers.get(route_id).schedule(task, TIMEOUT_INTERVAL);
+		timeoutTimers.get(route_id).reschedule(TIMEOUT_INTERVAL);
 	}
 	
 	/**
-	 *	Internal class PeriodicHandler extending TimerTask.
-	 *	Handles the periodic timer process.
-	 *	@see java.util.TimerTask
+	 *	Internal class PeriodicHandler implementing Runnable.
+	 *	Handles the periodic timer process of one send slot.
+	 *	@see Scheduler
 	 */
-	class PeriodicHandler extends TimerTask {
+	class PeriodicHandler implements Runnable {
 
 		private Daemon daemon;
+		private int slot;
 		
 		/**
 		 *	Class constructor.
 	 	 *	Creates the periodic handler.
 	 	 *	@param daemon The daemon on which runs the timeout (this).
+	 	 *	@param slot int representing the send slot on which the timer runs.
 		 */
-		public PeriodicHandler(Daemon daemon) {
+		public PeriodicHandler(Daemon daemon, int slot) {
 			this.daemon = daemon;
+			this.slot = slot;
 		}
 		
 		/**
-		 *	Overridden method run (from TimerTask). This method is automatically invoked when the timer has expired.
-		 *	Sets the boolean periodicSend to true so that the next writable selector key is used to send a packet.
-		 *	@see java.util.TimerTask#run()
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Marks a periodic update as pending for the slot so that the next writable selection sends it, then schedules the next update of the slot with a fresh jitter.
+		 *	@see #requestSend(int slot, boolean triggered)
+		 *	@see #nextPeriodicDelay()
 		 */
 		@Override
 		public void run() {
-			daemon.periodicSend = true; 
-			//System.out.println("Reseting periodicSend.");
-			
+			daemon.requestSend(slot, false);
+			daemon.periodicTimers[slot].reschedule(daemon.nextPeriodicDelay());
 		}
 	}
 	
 	/**
-	 *	Internal class TimeoutHandler extending TimerTask.
+	 *	Internal class PumpHandler implementing Runnable.
+	 *	Sends the pending updates when the daemon uses a Transport instead of its selector, one datagram per slot every PACING_INTERVAL.
+	 *	@see #setTransport(Transport transport)
+	 */
+	class PumpHandler implements Runnable {
+
+		private Daemon daemon;
+		
+		/**
+		 *	Class constructor.
+	 	 *	Creates the pump handler.
+	 	 *	@param daemon The daemon whose updates are sent (this).
+		 */
+		public PumpHandler(Daemon daemon) {
+			this.daemon = daemon;
+		}
+		
+		/**
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Sends the next datagram of every pending update and comes back after PACING_INTERVAL if some are left.
+		 *	@see #sendPackets()
+		 */
+		@Override
+		public void run() {
+			try {
+				if(daemon.sendPackets()) {
+					daemon.pumpTimer.reschedule(PACING_INTERVAL);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 *	Internal class HelloHandler implementing Runnable.
+	 *	Sends the hellos to the neighbors.
+	 *	@see #enableHello(long interval, int multiplier)
+	 */
+	class HelloHandler implements Runnable {
+
+		private Daemon daemon;
+		
+		/**
+		 *	Class constructor.
+	 	 *	Creates the hello handler.
+	 	 *	@param daemon The daemon sending the hellos (this).
+		 */
+		public HelloHandler(Daemon daemon) {
+			this.daemon = daemon;
+		}
+		
+		/**
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Sends a hello (command HELLO_COMMAND, version 2, sender id) to every neighbor, or once to the multicast group, then schedules the next hellos up to 25% early so that routers do not synchronize.
+		 *	@see #transmit(ByteBuffer datagram, int port)
+		 *	@see Transport
+		 */
+		@Override
+		public void run() {
+			for(int i = 0; i < daemon.sendSlots(); i++) {
+				helloBuffer.clear();
+				helloBuffer.put((byte) HELLO_COMMAND);
+				helloBuffer.put((byte) 2);
+				helloBuffer.put((byte) 0);
+				helloBuffer.put((byte) router_id);
+				helloBuffer.flip();
+				try {
+					if(daemon.transport != null) {
+						daemon.transport.send(helloBuffer, output_ports[i][0]);
+					} else {
+						daemon.transmit(helloBuffer, output_ports[i][0]);
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			daemon.helloTimer.reschedule(HELLO_INTERVAL - daemon.scheduler.random().nextInt((int) (HELLO_INTERVAL / 4) + 1));
+		}
+	}
+	
+	/**
+	 *	Internal class DetectHandler implementing Runnable.
+	 *	Handles the detection timer of one neighbor, restarted by each hello received from it.
+	 *	@see #receiveHello(int neighbor)
+	 */
+	class DetectHandler implements Runnable {
+
+		private Daemon daemon;
+		private int neighbor;
+		
+		/**
+		 *	Class constructor.
+	 	 *	Creates the detection handler.
+	 	 *	@param daemon The daemon on which runs the timer (this).
+	 	 *	@param neighbor int representing the index of the neighbor in the output ports.
+		 */
+		public DetectHandler(Daemon daemon, int neighbor) {
+			this.daemon = daemon;
+			this.neighbor = neighbor;
+		}
+		
+		/**
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Brings the adjacency down, since no hello was received for DETECT_MULTIPLIER hello intervals.
+		 *	@see #adjacencyDown(int neighbor)
+		 */
+		@Override
+		public void run() {
+			daemon.adjacencyDown(neighbor);
+		}
+	}
+	
+	/**
+	 *	Internal class TimeoutHandler implementing Runnable.
 	 *	Handles the timeout timer process.
-	 *	@see java.util.TimerTask
+	 *	@see Scheduler
 	 */
-	class TimeoutHandler extends TimerTask {
+	class TimeoutHandler implements Runnable {
 
 		private Daemon daemon;
 		private int route_id;
@@ -496,38 +1405,66 @@ public class Daemon {
 		}
 
 		/**
-		 *	Overridden synchronized method run (from TimerTask). This method is automatically invoked when the timer has expired.
-		 *	Starts the garbage timer, sets the route's cost to INFINITY and sends a triggered packet.
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Fails over to a valid path of the route's Adj-RIB-In if there is one. Otherwise starts the garbage timer, sets the route's cost to INFINITY and requests a triggered update.
+		 *	No triggered update is requested for a route already suppressed by flap damping, since it is already advertised as unreachable.
+		 *	A route already at INFINITY is left to its garbage timer, without a new penalty.
+		 *	The route is changed under the routing table's lock, the triggered update being requested once the lock is released.
+		 *	@see #failover(RoutingTableEntry route, int neighbor, long now)
 		 *	@see #startGarbageTimer(int route_id)
-		 *	@see #sendPackets(boolean triggered)
+		 *	@see #recordFlap(RoutingTableEntry route, float penalty)
+		 *	@see #requestTriggeredSend()
 		 *	@see RoutingTableEntry
-		 *	@see java.util.TimerTask#run()
 		 */
 		@Override
-		public synchronized void run() {
+		public void run() {
 			
-			System.out.println("----- Timeout activated for: " + route_id + ", garbage timer started. -----");
-			startGarbageTimer(route_id);
-			daemon.routingTable.get(route_id).setCost(daemon.INFINITY);
-			try {
-				synchronized(System.out) {
-					daemon.sendPackets(true);
-					daemon.displayRoutingTable();
+			boolean trigger;
+			synchronized(daemon.routingTable) {
+				RoutingTableEntry route = daemon.routingTable.get(route_id);
+				int alternative = -1;
+				if(route.hasRibIn()) {
+					long now = daemon.scheduler.now();
+					int current = daemon.neighborIndex(route.getFirst_hop_id());
+					if(current != -1) {
+						route.setRibIn(current, daemon.INFINITY, now);
+					}
+					alternative = daemon.selectAlternative(route, -1, now);
+					if(alternative != -1) {
+						daemon.failover(route, alternative, now);
+					}
 				}
-			} catch (IOException e) {
-				e.printStackTrace();
+				if(alternative != -1) {
+					trigger = true;
+				} else if(route.getCost() == daemon.INFINITY) {
+					// already invalidated and waiting for garbage collection: not a new flap.
+					trigger = false;
+				} else {
+					if(daemon.verbose) {
+						System.out.println("----- Timeout activated for: " + route_id + ", garbage timer started. -----");
+					}
+					startGarbageTimer(route_id);
+					trigger = !route.isSuppressed();
+					daemon.recordFlap(route, FLAP_PENALTY);
+					route.setCost(daemon.INFINITY);
+				}
+			}
+			if(trigger) {
+				daemon.requestTriggeredSend();
+			}
+			if(daemon.displayTable) {
+				daemon.displayRoutingTable();
 			}
-			//daemon.displayRoutingTable();
 			
 		}
 	}
 	
 	/**
-	 *	Internal class GarbageHandler extending TimerTask.
+	 *	Internal class GarbageHandler implementing Runnable.
 	 *	Handles the garbage timer process.
-	 *	@see java.util.TimerTask
+	 *	@see Scheduler
 	 */
-	class GarbageHandler extends TimerTask {
+	class GarbageHandler implements Runnable {
 
 		private Daemon daemon;
 		private int route_id;
@@ -544,42 +1481,120 @@ public class Daemon {
 		}
 
 		/**
-		 *	Overridden method run (from TimerTask). This method is automatically invoked when the timer has expired.
-		 *	Removes the entry from the routing table.
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Removes the entry and its timers from the routing table. A suppressed entry is kept for another garbage interval, so that its penalty is not forgotten.
 		 *	@see RoutingTableEntry
-		 *	@see java.util.TimerTask#run()
 		 */
 		@Override
 		public void run() {
 			synchronized(routingTable) {
-				System.out.println("----- Garbage collection for: " + route_id + " -----");
+				if(daemon.routingTable.get(route_id).isSuppressed()) {
+					daemon.garbageTimers.get(route_id).reschedule(GARBAGE_INTERVAL);
+					return;
+				}
+				if(daemon.verbose) {
+					System.out.println("----- Garbage collection for: " + route_id + " -----");
+				}
 				routingTable.remove(route_id);
-				daemon.timeoutTimers.get(route_id).cancel();
+				daemon.timeoutTimers.remove(route_id).cancel();
+				daemon.garbageTimers.remove(route_id);
+				daemon.reuseTimers.remove(route_id);
 				//daemon.displayRoutingTable();
 			}
 		}
 	}
 	
+	/**
+	 *	Internal class ReuseHandler implementing Runnable.
+	 *	Handles the end of the suppression of a route by flap damping.
+	 *	@see Scheduler
+	 */
+	class ReuseHandler implements Runnable {
+
+		private Daemon daemon;
+		private int route_id;
+
+		/**
+		 *	Class constructor.
+	 	 *	Creates the reuse handler.
+	 	 *	@param daemon The daemon on which runs the timer (this).
+	 	 *	@param route_id int representing the suppressed route.
+		 */
+		public ReuseHandler(Daemon daemon, int route_id) {
+			this.daemon = daemon;
+			this.route_id = route_id;
+		}
+
+		/**
+		 *	Overridden method run (from Runnable). This method is automatically invoked when the timer has expired.
+		 *	Lifts the suppression if the route's penalty has decayed under the reuse threshold, otherwise waits again (the route flapped while suppressed).
+		 *	A reachable route is advertised again at once with a triggered update, requested once the routing table's lock is released.
+		 *	@see #decayedPenalty(RoutingTableEntry route, long now)
+		 *	@see #requestTriggeredSend()
+		 */
+		@Override
+		public void run() {
+			boolean trigger;
+			synchronized(daemon.routingTable) {
+				RoutingTableEntry route = daemon.routingTable.get(route_id);
+				long now = daemon.scheduler.now();
+				float penalty = daemon.decayedPenalty(route, now);
+				if(penalty > REUSE_THRESHOLD) {
+					daemon.reuseTimers.get(route_id).reschedule(daemon.reuseDelay(penalty));
+					return;
+				}
+				route.setPenalty(penalty, now);
+				route.setSuppressed(false);
+				trigger = route.getCost() < daemon.INFINITY;
+			}
+			if(daemon.verbose) {
+				System.out.println("----- Route " + route_id + " reused -----");
+			}
+			if(trigger) {
+				daemon.requestTriggeredSend();
+			}
+		}
+	}
+	
 	/**
 	 *	Private method displayRoutingTable. This method is called all along the daemon class in several methods (could be added anywhere if needed)
 	 *	Displays the routing table of this daemon. One entry is composed of a destination, a first hop, a cost and a flag set if the garbage process has been initiated for this entry.
+	 *	The entries are displayed by destination; only the first DISPLAY_LIMIT entries are displayed, so that a large table (static routes) does not flood the output.
 	 *	@see RoutingTableEntry
 	 */
 	private void displayRoutingTable() {
 		synchronized(routingTable) {
 			
 			System.out.println("----- Routing Table of " + router_id + " -----");
-			for(Integer key: routingTable.keySet()) {
+			RoutingTableEntry[] entries = new RoutingTableEntry[routingTable.size()];
+			int size = 0;
+			for(int slot = 0; slot < routingTable.capacity(); slot++) {
+				if(routingTable.valueAt(slot) != null) {
+					entries[size] = routingTable.valueAt(slot);
+					size++;
+				}
+			}
+			sortByDestination(entries);
+			int displayed = 0;
+			for(RoutingTableEntry entry: entries) {
+				if(displayed == DISPLAY_LIMIT) {
+					System.out.println("... and " + (routingTable.size() - DISPLAY_LIMIT) + " more entries");
+					break;
+				}
+				displayed++;
 				String flag = "Inactive";
 				String space = " ";
-				RoutingTableEntry entry = routingTable.get(key);
 				if(entry.isGarbage()) {
 					flag = "Active";
 				} 
 				if(entry.getCost() >= 10) {
 					space = "";
 				}
-				System.out.println("Dest: " + entry.getDestination_id() + ", First Hop: " + entry.getFirst_hop_id() + ", Cost: " + space + entry.getCost() +", Garbage: " +  flag);
+				String suppressed = "";
+				if(entry.isSuppressed()) {
+					suppressed = ", Suppressed";
+				}
+				System.out.println("Dest: " + entry.getDestination_id() + ", First Hop: " + entry.getFirst_hop_id() + ", Cost: " + space + entry.getCost() +", Garbage: " +  flag + suppressed);
 			}
 			System.out.println("");
 		}
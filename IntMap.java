@@ -0,0 +1,196 @@
+/**
+ *	Class IntMap. Hash map from int keys to objects, used by the daemon for its routing table and its per-route timers.
+ *	The keys are stored unboxed in an open-addressing table (linear probing, removals by backward shift), so that neither a lookup nor an update allocates, whatever the value of the key.
+ *	The entries are walked by slot index (capacity, keyAt, valueAt), which does not allocate either; the table must not be changed while it is walked, except for the values of the existing keys.
+ *	Null values are not allowed: a null value marks a free slot.
+ *	@param <V> Type of the values.
+ *	@see Daemon
+ */
+public class IntMap<V> {
+
+	private int[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int mask;
+
+	/**
+	 *	Class constructor.
+	 *	Creates an empty map of 16 slots.
+	 */
+	public IntMap() {
+		allocate(16);
+	}
+
+	/**
+	 *	Method get.
+	 *	@param key int representing the key to look up.
+	 *	@return The value of the key, null if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int slot = find(key);
+		return slot == -1 ? null : (V) values[slot];
+	}
+
+	/**
+	 *	Method containsKey.
+	 *	@param key int representing the key to look up.
+	 *	@return true if the key is in the map, false otherwise.
+	 */
+	public boolean containsKey(int key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 *	Method put.
+	 *	Associates the value with the key, doubling the table when it gets half full.
+	 *	@param key int representing the key.
+	 *	@param value V to associate with the key, not null.
+	 *	@return The previous value of the key, null if the key was not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if(value == null) {
+			throw new IllegalArgumentException("IntMap does not hold null values");
+		}
+		int slot = hash(key);
+		while(values[slot] != null) {
+			if(keys[slot] == key) {
+				V previous = (V) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if(size * 2 > values.length) {
+			int[] oldKeys = keys;
+			Object[] oldValues = values;
+			allocate(values.length * 2);
+			for(int i = 0; i < oldValues.length; i++) {
+				if(oldValues[i] != null) {
+					insert(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *	Method remove.
+	 *	Removes the key, then shifts back the following entries of its probe sequence so that no tombstone is left.
+	 *	@param key int representing the key to remove.
+	 *	@return The value of the key, null if the key was not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int slot = find(key);
+		if(slot == -1) {
+			return null;
+		}
+		V value = (V) values[slot];
+		int free = slot;
+		int next = (free + 1) & mask;
+		while(values[next] != null) {
+			int home = hash(keys[next]);
+			// the entry may fill the free slot only if its home slot is not between the free slot and itself.
+			if(((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[free] = null;
+		size--;
+		return value;
+	}
+
+	/**
+	 *	Method size.
+	 *	@return The number of entries of the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *	Method capacity.
+	 *	@return The number of slots of the table, to walk it with keyAt and valueAt.
+	 */
+	public int capacity() {
+		return values.length;
+	}
+
+	/**
+	 *	Method keyAt.
+	 *	@param slot int representing a slot of the table.
+	 *	@return The key stored in the slot, meaningless if the slot is free.
+	 */
+	public int keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 *	Method valueAt.
+	 *	@param slot int representing a slot of the table.
+	 *	@return The value stored in the slot, null if the slot is free.
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	/**
+	 *	Private method allocate.
+	 *	@param capacity int representing the number of slots, a power of two.
+	 */
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 *	Private method insert. This method is called by the method put when the table grows.
+	 *	@param key int representing a key not in the table.
+	 *	@param value Object to store with the key.
+	 */
+	private void insert(int key, Object value) {
+		int slot = hash(key);
+		while(values[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	/**
+	 *	Private method find.
+	 *	@param key int representing the key to look up.
+	 *	@return The slot of the key, -1 if the key is not in the map.
+	 */
+	private int find(int key) {
+		int slot = hash(key);
+		while(values[slot] != null) {
+			if(keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 *	Private method hash.
+	 *	Scrambles the key so that consecutive destinations do not cluster in the table.
+	 *	@param key int representing a key.
+	 *	@return The home slot of the key.
+	 */
+	private int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -17,16 +17,34 @@ public class Main {
 	private final static String ROUTER_ID = "router-id";
 	private final static String INPUT_PORTS = "input-ports";
 	private final static String OUTPUT_PORTS = "output-ports";
+	private final static String MULTICAST = "multicast";
+	private final static String MULTICAST_INTERFACE = "multicast-interface";
+	private final static String CONTROL_PORT = "control-port";
+	private final static String CAPTURE = "capture";
+	private final static String TIMERS = "timers";
+	private final static String DAMPING = "damping";
+	private final static String PIPELINE = "pipeline";
+	private final static String HELLO = "hello";
+	private final static String STATIC_ROUTES = "static-routes";
 	
 	/**
 	 *	Program main method. 
-	 *	Runs the Parser class to set up the configuration, initializes the Daemon and then starts a continuous loop of incoming event reaction (using the selector abstract class).
+	 *	Runs the Parser class to set up the configuration, initializes the Daemon and then starts a continuous loop of incoming event reaction (using the selector abstract class), or hands the daemon over to the staged pipeline if the pipeline option is set.
 	 *	@param args Program input argument.
 	 *	@throws IOException If an input or output exception occurred.
 	 *	@see Parser
 	 *	@see Daemon
+	 *	@see Daemon#enableMulticast(int port, String interface_name)
+	 *	@see Daemon#startControlServer(int port)
+	 *	@see Daemon#enableCapture(String file_name)
+	 *	@see Daemon#setIntervals(long periodic, long timeout, long garbage)
+	 *	@see Daemon#setDamping(long half_life, float suppress, float reuse)
+	 *	@see Daemon#enableHello(long interval, int multiplier)
 	 *	@see Daemon#setupRoutingTable()
+	 *	@see Daemon#importStaticRoutes(String file_name)
 	 *	@see Daemon#startPeriodicTimer()
+	 *	@see Daemon#runTimers()
+	 *	@see Daemon#startPipeline(int ring_size)
 	 *	@see java.nio.channels.Selector
 	 */	
 	public static void main(String[] args) throws IOException
@@ -37,12 +55,42 @@ public class Main {
 			Parser.PrintConfig(config);
 			Daemon daemon = new Daemon((int) config.get(ROUTER_ID), (int[]) config.get(INPUT_PORTS), (int[][]) config.get(OUTPUT_PORTS));
 			
+			if(config.containsKey(MULTICAST)) {
+				daemon.enableMulticast((int) config.get(MULTICAST), (String) config.get(MULTICAST_INTERFACE));
+			}
+			if(config.containsKey(TIMERS)) {
+				long[] timers = (long[]) config.get(TIMERS);
+				daemon.setIntervals(timers[0], timers[1], timers[2]);
+			}
+			if(config.containsKey(DAMPING)) {
+				float[] damping = (float[]) config.get(DAMPING);
+				daemon.setDamping((long) damping[0], damping[1], damping[2]);
+			}
+			if(config.containsKey(HELLO)) {
+				long[] hello = (long[]) config.get(HELLO);
+				daemon.enableHello(hello[0], (int) hello[1]);
+			}
+			if(config.containsKey(CAPTURE)) {
+				daemon.enableCapture((String) config.get(CAPTURE));
+			}
 			daemon.setupRoutingTable();
+			if(config.containsKey(STATIC_ROUTES)) {
+				daemon.importStaticRoutes((String) config.get(STATIC_ROUTES));
+			}
+			if(config.containsKey(CONTROL_PORT)) {
+				daemon.startControlServer((int) config.get(CONTROL_PORT));
+			}
 			daemon.startPeriodicTimer();
 			
+			if(config.containsKey(PIPELINE)) {
+				daemon.startPipeline((int) config.get(PIPELINE));
+				return;
+			}
+			
 			while(true) {
 				daemon.select();
 				daemon.isSelected();
+				daemon.runTimers();
 				try {
 					Thread.sleep(1);
 				} catch (InterruptedException e) {
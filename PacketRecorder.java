@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *	Class PacketRecorder. Appends the received datagrams to a compact, memory-mapped binary log which can be fed back to a daemon by the Replay driver.
+ *	The log starts with a 16 bytes header: the magic "RIPCAP01" and the offset (long) of the end of the last record.
+ *	Each record is a timestamp in nanoseconds since the start of the capture (long), the source port (int), the length of the datagram (short) and its raw bytes.
+ *	@see Daemon#enableCapture(String file_name)
+ *	@see Replay
+ */
+public class PacketRecorder {
+
+	final static byte[] MAGIC = {'R', 'I', 'P', 'C', 'A', 'P', '0', '1'};
+	final static int HEADER_SIZE = 16;
+	final static int RECORD_HEADER_SIZE = 14;
+	final private long CHUNK_SIZE = 16 * 1024 * 1024;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer header;
+	private MappedByteBuffer chunk;
+	private long chunkStart;
+	private long startTime;
+
+	/**
+	 *	Class constructor.
+	 *	Creates (or truncates) the log file and maps its header and first chunk.
+	 *	@param file_name String representing the path of the log file.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public PacketRecorder(String file_name) throws IOException {
+		file = new RandomAccessFile(file_name, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.put(MAGIC);
+		header.putLong(8, HEADER_SIZE);
+		chunkStart = HEADER_SIZE;
+		chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart, CHUNK_SIZE);
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 *	Synchronized method record. This method is called by the daemon's receivePacket method.
+	 *	Appends one datagram to the log, mapping a new chunk of the file when the current one is full. The position of the given buffer is left unchanged.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@param source_port int representing the UDP port the datagram was sent from.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public synchronized void record(ByteBuffer datagram, int source_port) throws IOException {
+		int length = datagram.remaining();
+		if(chunk.remaining() < RECORD_HEADER_SIZE + length) {
+			chunkStart += chunk.position();
+			chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart, CHUNK_SIZE);
+		}
+		chunk.putLong(System.nanoTime() - startTime);
+		chunk.putInt(source_port);
+		chunk.putShort((short) length);
+		int position = datagram.position();
+		chunk.put(datagram);
+		datagram.position(position);
+		header.putLong(8, chunkStart + chunk.position());
+	}
+
+	/**
+	 *	Synchronized method close.
+	 *	Flushes the mapped chunks and cuts the unused end of the last chunk.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public synchronized void close() throws IOException {
+		long end = header.getLong(8);
+		chunk.force();
+		header.force();
+		channel.truncate(end);
+		file.close();
+	}
+}
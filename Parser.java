@@ -2,7 +2,9 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,10 +16,20 @@ public class Parser {
 	private final static String ROUTER_ID = "router-id";
 	private final static String INPUT_PORTS = "input-ports";
 	private final static String OUTPUT_PORTS = "output-ports";
+	private final static String MULTICAST = "multicast";
+	private final static String MULTICAST_INTERFACE = "multicast-interface";
+	private final static String CONTROL_PORT = "control-port";
+	private final static String CAPTURE = "capture";
+	private final static String TIMERS = "timers";
+	private final static String DAMPING = "damping";
+	private final static String PIPELINE = "pipeline";
+	private final static String HELLO = "hello";
+	private final static String STATIC_ROUTES = "static-routes";
 	
 	/**
 	 *	Class constructor. 
 	 *	Parses router config file into a key-value Map.
+	 *	The three first lines are mandatory, any following line is an optional setting.
 	 *	@param args Program input argument.
 	 *	@return config HashMap<String, Object> containing router config.
 	 *	@see java.util.HashMap
@@ -38,6 +50,15 @@ public class Parser {
             line = br.readLine();
             String[] splitThirdLine = line.split(", ");
             
+            List<String[]> optionLines = new ArrayList<String[]>();
+            while((line = br.readLine()) != null)
+            {
+            	if(!line.trim().isEmpty())
+            	{
+            		optionLines.add(line.trim().split(", "));
+            	}
+            }
+            
             br.close();
             
             if(splitFirstLine[0].equals(ROUTER_ID)) 
@@ -113,6 +134,11 @@ public class Parser {
         		return null;
         	}
             
+            if(!ParseOptions(optionLines, config))
+            {
+            	return null;
+            }
+            
             return(config);
             
 		}
@@ -131,6 +157,118 @@ public class Parser {
 		
 	}
 	
+	/**
+	 *	Parses the optional settings following the three mandatory lines of the config file.
+	 *	@param optionLines List of the optional lines, already split on ", ".
+	 *	@param config HashMap<String, Object> in which the parsed settings are stored.
+	 *	@return true if every optional line is valid, false otherwise.
+	 */
+	private static boolean ParseOptions(List<String[]> optionLines, Map<String, Object> config)
+	{
+		for(String[] option : optionLines)
+		{
+			if(option[0].equals(MULTICAST) && (option.length == 2 || option.length == 3))
+			{
+				int multicast_port = Integer.parseInt(option[1]);
+				
+				if(1024 <= multicast_port && multicast_port <= 64000)
+				{
+					config.put(MULTICAST, multicast_port);
+				}
+				else
+				{
+					return false;
+				}
+				if(option.length == 3)
+				{
+					config.put(MULTICAST_INTERFACE, option[2]);
+				}
+			}
+			else if(option[0].equals(CONTROL_PORT) && option.length == 2)
+			{
+				int control_port = Integer.parseInt(option[1]);
+				
+				if(1024 <= control_port && control_port <= 64000)
+				{
+					config.put(CONTROL_PORT, control_port);
+				}
+				else
+				{
+					return false;
+				}
+			}
+			else if(option[0].equals(CAPTURE) && option.length == 2)
+			{
+				config.put(CAPTURE, option[1]);
+			}
+			else if(option[0].equals(TIMERS) && option.length == 4)
+			{
+				long[] timers = new long[3];
+				for(int i = 0; i < 3; i++)
+				{
+					timers[i] = Long.parseLong(option[i+1]);
+					if(timers[i] <= 0)
+					{
+						return false;
+					}
+				}
+				config.put(TIMERS, timers);
+			}
+			else if(option[0].equals(DAMPING) && option.length == 4)
+			{
+				float[] damping = new float[3];
+				for(int i = 0; i < 3; i++)
+				{
+					damping[i] = Float.parseFloat(option[i+1]);
+				}
+				if(damping[0] < 1 || damping[2] <= 0 || damping[2] >= damping[1])
+				{
+					return false;
+				}
+				config.put(DAMPING, damping);
+			}
+			else if(option[0].equals(PIPELINE) && option.length == 2)
+			{
+				int ring_size = Integer.parseInt(option[1]);
+				
+				if(ring_size >= 2 && Integer.bitCount(ring_size) == 1)
+				{
+					config.put(PIPELINE, ring_size);
+				}
+				else
+				{
+					return false;
+				}
+			}
+			else if(option[0].equals(HELLO) && option.length == 3)
+			{
+				long[] hello = new long[2];
+				for(int i = 0; i < 2; i++)
+				{
+					hello[i] = Long.parseLong(option[i+1]);
+				}
+				if(hello[0] >= 1 && hello[1] >= 1)
+				{
+					config.put(HELLO, hello);
+				}
+				else
+				{
+					return false;
+				}
+			}
+			else if(option[0].equals(STATIC_ROUTES) && option.length == 2)
+			{
+				config.put(STATIC_ROUTES, option[1]);
+			}
+			else
+			{
+				System.out.println("Unknown option: " + option[0]);
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 *	Prints the key-value configuration map through System.out
 	 *	@param config HashMap<String, Object> containing router config.
@@ -156,6 +294,50 @@ public class Parser {
 		{
 			System.out.println("output to destination router: " + outputs[i][2] + ", to port: " + outputs[i][0] + ", with metric cost: " + outputs[i][1]);
 		}
+		
+		if(config.containsKey(MULTICAST))
+		{
+			String interface_str = config.containsKey(MULTICAST_INTERFACE) ? (String) config.get(MULTICAST_INTERFACE) : "loopback";
+			System.out.println(MULTICAST + ": port " + config.get(MULTICAST) + " on " + interface_str);
+		}
+		
+		if(config.containsKey(CONTROL_PORT))
+		{
+			System.out.println(CONTROL_PORT + ": " + config.get(CONTROL_PORT));
+		}
+		
+		if(config.containsKey(CAPTURE))
+		{
+			System.out.println(CAPTURE + ": " + config.get(CAPTURE));
+		}
+		
+		if(config.containsKey(TIMERS))
+		{
+			long[] timers = (long[]) config.get(TIMERS);
+			System.out.println(TIMERS + ": periodic " + timers[0] + " ms, timeout " + timers[1] + " ms, garbage " + timers[2] + " ms");
+		}
+		
+		if(config.containsKey(DAMPING))
+		{
+			float[] damping = (float[]) config.get(DAMPING);
+			System.out.println(DAMPING + ": half-life " + (long) damping[0] + " ms, suppress " + damping[1] + ", reuse " + damping[2]);
+		}
+		
+		if(config.containsKey(PIPELINE))
+		{
+			System.out.println(PIPELINE + ": rings of " + config.get(PIPELINE) + " slots");
+		}
+		
+		if(config.containsKey(HELLO))
+		{
+			long[] hello = (long[]) config.get(HELLO);
+			System.out.println(HELLO + ": every " + hello[0] + " ms, detect multiplier " + hello[1]);
+		}
+		
+		if(config.containsKey(STATIC_ROUTES))
+		{
+			System.out.println(STATIC_ROUTES + ": " + config.get(STATIC_ROUTES));
+		}
 	}
 	
 }
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *	Class Pipeline. Runs a daemon as four stages connected by preallocated ring buffers, each stage on its own thread:
+ *	<ul>
+ *	<li>receive: waits on the selector and receives the datagrams into the slots of the receive ring;</li>
+ *	<li>decode: reads and checks each datagram of the receive ring;</li>
+ *	<li>apply: the single writer of the routing table, applies the decoded packets, runs the timers and encodes the updates into the send ring;</li>
+ *	<li>send: sends the datagrams of the send ring.</li>
+ *	</ul>
+ *	Each stage counts the events it processed and the time it was busy, so that they can be measured independently.
+ *	@see RingBuffer
+ *	@see Daemon#startPipeline(int ring_size)
+ */
+public class Pipeline implements Transport {
+
+	final private static int SLOT_SIZE = 1024;
+	final private static int SPINS = 100;
+	final private static long PARK_NANOS = 50000;
+	final private static int RECEIVE = 0;
+	final private static int DECODE = 1;
+	final private static int APPLY = 2;
+	final private static int SEND = 3;
+	final private static String[] STAGE_NAMES = {"receive", "decode", "apply", "send"};
+
+	private Daemon daemon;
+	private Selector selector;
+	private RingBuffer receiveRing;
+	private RingBuffer sendRing;
+	private long[] events = new long[4];
+	private long[] busyNanos = new long[4];
+	private volatile boolean running = true;
+
+	/**
+	 *	Class constructor.
+	 *	Allocates the two rings: the receive ring is consumed by the decode then the apply stage, the send ring by the send stage.
+	 *	@param daemon The daemon run by the pipeline.
+	 *	@param selector Selector on which the daemon's input channels are registered.
+	 *	@param ring_size int representing the number of slots of each ring, a power of two.
+	 */
+	public Pipeline(Daemon daemon, Selector selector, int ring_size) {
+		this.daemon = daemon;
+		this.selector = selector;
+		receiveRing = new RingBuffer(ring_size, 2, SLOT_SIZE);
+		sendRing = new RingBuffer(ring_size, 1, SLOT_SIZE);
+	}
+
+	/**
+	 *	Method start.
+	 *	Starts the four stage threads.
+	 */
+	public void start() {
+		startStage(RECEIVE, new Runnable() {
+			@Override
+			public void run() {
+				receiveLoop();
+			}
+		});
+		startStage(DECODE, new Runnable() {
+			@Override
+			public void run() {
+				decodeLoop();
+			}
+		});
+		startStage(APPLY, new Runnable() {
+			@Override
+			public void run() {
+				applyLoop();
+			}
+		});
+		startStage(SEND, new Runnable() {
+			@Override
+			public void run() {
+				sendLoop();
+			}
+		});
+	}
+
+	/**
+	 *	Method stop.
+	 *	Asks the stage threads to stop after their current batch.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 *	Private method startStage. This method is called by the method start.
+	 *	@param stage int representing the stage.
+	 *	@param loop Runnable holding the stage's loop.
+	 */
+	private void startStage(int stage, Runnable loop) {
+		Thread thread = new Thread(loop, "pipeline-" + STAGE_NAMES[stage]);
+		thread.start();
+	}
+
+	/**
+	 *	Private method receiveLoop. Loop of the receive stage.
+	 *	Waits for readable channels and receives each datagram into the next free slot of the receive ring, waiting for a slot if the ring is full (the socket buffers absorb the burst meanwhile).
+	 */
+	private void receiveLoop() {
+		while(running) {
+			try {
+				if(selector.select(100) == 0) {
+					continue;
+				}
+				long start = System.nanoTime();
+				Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+				long last = -1;
+				while(selectedKeys.hasNext()) {
+					SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+					if(!key.isReadable()) {
+						continue;
+					}
+					long sequence;
+					int idle = 0;
+					while((sequence = receiveRing.tryClaim()) == -1) {
+						if(last != -1) {
+							receiveRing.publish(last);
+						}
+						idle = idle(idle);
+					}
+					receiveRing.setPort(sequence, daemon.receiveInto((DatagramChannel) key.channel(), receiveRing.datagram(sequence)));
+					last = sequence;
+					events[RECEIVE]++;
+				}
+				if(last != -1) {
+					receiveRing.publish(last);
+				}
+				busyNanos[RECEIVE] += System.nanoTime() - start;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 *	Private method decodeLoop. Loop of the decode stage.
+	 *	Reads and checks the received datagrams into the decoded arrays of their slots; a dropped datagram is handed to the apply stage with a length of -1.
+	 */
+	private void decodeLoop() {
+		int idle = 0;
+		while(running) {
+			long next = receiveRing.processed(0) + 1;
+			long available = receiveRing.available(0);
+			if(available < next) {
+				idle = idle(idle);
+				continue;
+			}
+			idle = 0;
+			long start = System.nanoTime();
+			for(long sequence = next; sequence <= available; sequence++) {
+				receiveRing.setDecodedLength(sequence, daemon.decodeDatagram(receiveRing.datagram(sequence), receiveRing.decoded(sequence)));
+			}
+			receiveRing.release(0, available);
+			events[DECODE] += available - next + 1;
+			busyNanos[DECODE] += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 *	Private method applyLoop. Loop of the apply stage, the only thread writing the routing table and running the daemon's timers.
+	 *	Applies the decoded packets, then runs the expired timers; the updates they trigger are encoded into the send ring by the send method.
+	 *	@see #send(ByteBuffer datagram, int port)
+	 */
+	private void applyLoop() {
+		int idle = 0;
+		while(running) {
+			long next = receiveRing.processed(1) + 1;
+			long available = receiveRing.available(1);
+			long start = System.nanoTime();
+			int work = 0;
+			for(long sequence = next; sequence <= available; sequence++) {
+				int length = receiveRing.decodedLength(sequence);
+				if(length != -1) {
+					daemon.applyDecoded(receiveRing.decoded(sequence), length);
+				}
+				work++;
+			}
+			if(available >= next) {
+				receiveRing.release(1, available);
+			}
+			work += daemon.runTimers();
+			if(work == 0) {
+				idle = idle(idle);
+				continue;
+			}
+			idle = 0;
+			events[APPLY] += work;
+			busyNanos[APPLY] += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 *	Private method sendLoop. Loop of the send stage.
+	 *	Sends the datagrams encoded by the apply stage.
+	 *	@see Daemon#transmit(ByteBuffer datagram, int port)
+	 */
+	private void sendLoop() {
+		int idle = 0;
+		while(running) {
+			long next = sendRing.processed(0) + 1;
+			long available = sendRing.available(0);
+			if(available < next) {
+				idle = idle(idle);
+				continue;
+			}
+			idle = 0;
+			long start = System.nanoTime();
+			for(long sequence = next; sequence <= available; sequence++) {
+				try {
+					daemon.transmit(sendRing.datagram(sequence), sendRing.port(sequence));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			sendRing.release(0, available);
+			events[SEND] += available - next + 1;
+			busyNanos[SEND] += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 *	Overridden method send (from Transport). Called by the daemon on the apply stage's thread.
+	 *	Copies an encoded datagram into the next slot of the send ring, waiting for a slot if the send stage is behind.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@param port int representing the destination port.
+	 *	@return The number of bytes queued.
+	 */
+	@Override
+	public int send(ByteBuffer datagram, int port) {
+		long sequence;
+		int idle = 0;
+		while((sequence = sendRing.tryClaim()) == -1) {
+			idle = idle(idle);
+		}
+		ByteBuffer slot = sendRing.datagram(sequence);
+		slot.clear();
+		int length = datagram.remaining();
+		slot.put(datagram);
+		slot.flip();
+		sendRing.setPort(sequence, port);
+		sendRing.publish(sequence);
+		return length;
+	}
+
+	/**
+	 *	Private static method idle. Wait strategy of the stages when they have nothing to do: spin a little, then park for a short while.
+	 *	@param idle int representing the number of consecutive idle rounds.
+	 *	@return The new number of consecutive idle rounds.
+	 */
+	private static int idle(int idle) {
+		if(idle < SPINS) {
+			Thread.onSpinWait();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return idle + 1;
+	}
+
+	/**
+	 *	Method stats.
+	 *	Reads the counters of the stages (the values are written by the stage threads and may be slightly stale).
+	 *	@return A JSON line giving for each stage the number of events processed and the busy time, and the backlog of each ring.
+	 */
+	public String stats() {
+		String json = "{";
+		for(int i = 0; i < STAGE_NAMES.length; i++) {
+			json += "\"" + STAGE_NAMES[i] + "\":{\"events\":" + events[i] + ",\"busy_ms\":" + busyNanos[i] / 1000000 + "},";
+		}
+		json += "\"receive_backlog\":" + (receiveRing.available(0) - receiveRing.processed(1));
+		json += ",\"send_backlog\":" + (sendRing.available(0) - sendRing.processed(0)) + "}";
+		return json;
+	}
+}
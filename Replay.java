@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ *	Class Replay. Feeds a packet log recorded by a PacketRecorder straight into the receive pipeline of a daemon, to benchmark it on a realistic and repeatable load.
+ *	Usage: java Replay &lt;config file&gt; &lt;capture file&gt; [paced] [repeat &lt;count&gt;]
+ *	The daemon is built from the router's config file but binds no input port and sends nothing. Its timers run on a SimulatedScheduler following the timestamps of the capture. By default the packets are replayed as fast as possible; with "paced" the original spacing between the packets is kept.
+ *	@see PacketRecorder
+ *	@see Daemon#replayPacket(ByteBuffer datagram)
+ */
+public class Replay {
+
+	private final static String ROUTER_ID = "router-id";
+	private final static String OUTPUT_PORTS = "output-ports";
+
+	/**
+	 *	Program main method.
+	 *	Maps the capture file, replays its packets the requested number of times and prints the throughput.
+	 *	@param args Program input arguments.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.out.println("Usage: java Replay <config file> <capture file> [paced] [repeat <count>]");
+			return;
+		}
+		Map<String, Object> config = Parser.ParseConfig(new String[] {args[0]});
+		if(config == null) {
+			System.out.println("Error parsing config file.");
+			return;
+		}
+		boolean paced = false;
+		int repeat = 1;
+		for(int i = 2; i < args.length; i++) {
+			if(args[i].equals("paced")) {
+				paced = true;
+			} else if(args[i].equals("repeat") && i + 1 < args.length) {
+				repeat = Integer.parseInt(args[++i]);
+			}
+		}
+
+		MappedByteBuffer log = mapCapture(args[1]);
+		if(log == null) {
+			return;
+		}
+
+		SimulatedScheduler scheduler = new SimulatedScheduler(0);
+		Daemon daemon = new Daemon((int) config.get(ROUTER_ID), new int[0], (int[][]) config.get(OUTPUT_PORTS), scheduler);
+		daemon.setVerbose(false);
+		daemon.setupRoutingTable();
+
+		long packets = 0;
+		long bytes = 0;
+		long captureLength = lastTimestamp(log) / 1000000 + 1;
+		// one view of the log, moved over each record, so that the timed loop allocates nothing.
+		ByteBuffer datagram = log.duplicate();
+		long start = System.nanoTime();
+		for(int r = 0; r < repeat; r++) {
+			log.position(PacketRecorder.HEADER_SIZE);
+			long replayStart = System.nanoTime();
+			while(log.hasRemaining()) {
+				long timestamp = log.getLong();
+				log.getInt();
+				int length = log.getShort() & 0xFFFF;
+				if(paced) {
+					waitUntil(replayStart + timestamp);
+				}
+				// the daemon's timers follow the capture's time, whatever the replay speed.
+				scheduler.advance(Math.max(0, r * captureLength + timestamp / 1000000 - scheduler.now()));
+				datagram.limit(log.position() + length);
+				datagram.position(log.position());
+				daemon.replayPacket(datagram);
+				log.position(log.position() + length);
+				packets++;
+				bytes += length;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println("Replayed " + packets + " packets (" + bytes + " Bytes) in " + (elapsed / 1000000) + " ms: " + (long) (packets * 1e9 / Math.max(elapsed, 1)) + " packets/s, " + (elapsed / Math.max(packets, 1)) + " ns/packet.");
+		System.out.println("Routing table size: " + daemon.snapshotRoutingTable().length);
+		System.exit(0);
+	}
+
+	/**
+	 *	Private static method mapCapture. This method is called by the main method.
+	 *	Maps the used part of a capture file and checks its header.
+	 *	@param file_name String representing the path of the capture file.
+	 *	@return The mapped log, limited to the end of its last record, or null if the file is not a capture.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	private static MappedByteBuffer mapCapture(String file_name) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(file_name, "r");
+		FileChannel channel = file.getChannel();
+		if(channel.size() < PacketRecorder.HEADER_SIZE) {
+			System.out.println("Not a capture file: " + file_name);
+			file.close();
+			return null;
+		}
+		MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		file.close();
+		for(int i = 0; i < PacketRecorder.MAGIC.length; i++) {
+			if(log.get(i) != PacketRecorder.MAGIC[i]) {
+				System.out.println("Not a capture file: " + file_name);
+				return null;
+			}
+		}
+		long end = log.getLong(8);
+		if(end > log.capacity()) {
+			System.out.println("Truncated capture file: " + file_name);
+			return null;
+		}
+		log.limit((int) end);
+		return log;
+	}
+
+	/**
+	 *	Private static method lastTimestamp. This method is called by the main method.
+	 *	Walks through the records of a mapped capture.
+	 *	@param log MappedByteBuffer holding the capture.
+	 *	@return The timestamp of the last record, in nanoseconds.
+	 */
+	private static long lastTimestamp(MappedByteBuffer log) {
+		long timestamp = 0;
+		int position = PacketRecorder.HEADER_SIZE;
+		while(position < log.limit()) {
+			timestamp = log.getLong(position);
+			position += PacketRecorder.RECORD_HEADER_SIZE + (log.getShort(position + 12) & 0xFFFF);
+		}
+		return timestamp;
+	}
+
+	/**
+	 *	Private static method waitUntil. This method is called by the main method in paced mode.
+	 *	Waits until the given time of System.nanoTime.
+	 *	@param deadline long representing the time to wait for, in nanoseconds.
+	 */
+	private static void waitUntil(long deadline) {
+		long remaining;
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			try {
+				Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *	Class RingBuffer. Preallocated ring of datagram slots shared by one producer and a chain of consumer stages, in the style of the LMAX Disruptor.
+ *	The producer claims and publishes slots in sequence order; consumer stage i only sees the slots already released by stage i-1 (the producer for stage 0), and the producer only reuses a slot once the last stage has released it.
+ *	Every sequence has a single writer, so no lock is needed: publishing is an ordered store of the sequence, after which the slot's content is visible to the next stage.
+ *	@see Pipeline
+ */
+public class RingBuffer {
+
+	private int mask;
+	private ByteBuffer[] datagrams;
+	private int[] ports;
+	private int[][] decoded;
+	private int[] decodedLengths;
+	private AtomicLong cursor = new AtomicLong(-1);
+	private AtomicLong[] sequences;
+	private long next = 0;
+
+	/**
+	 *	Class constructor.
+	 *	Allocates all the slots, each with a datagram buffer and an array receiving the decoded datagram, so that no allocation is needed afterwards.
+	 *	@param size int representing the number of slots, a power of two.
+	 *	@param consumers int representing the number of consumer stages.
+	 *	@param slot_size int representing the capacity in bytes of each slot's datagram buffer.
+	 */
+	public RingBuffer(int size, int consumers, int slot_size) {
+		if(Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+		}
+		mask = size - 1;
+		datagrams = new ByteBuffer[size];
+		ports = new int[size];
+		decoded = new int[size][];
+		decodedLengths = new int[size];
+		for(int i = 0; i < size; i++) {
+			datagrams[i] = ByteBuffer.allocateDirect(slot_size);
+			decoded[i] = new int[slot_size];
+		}
+		sequences = new AtomicLong[consumers];
+		for(int i = 0; i < consumers; i++) {
+			sequences[i] = new AtomicLong(-1);
+		}
+	}
+
+	/**
+	 *	Method tryClaim. Called by the producer only.
+	 *	@return The sequence of the next slot to fill, -1 if the ring is full.
+	 */
+	public long tryClaim() {
+		if(next - datagrams.length > sequences[sequences.length - 1].get()) {
+			return -1;
+		}
+		return next++;
+	}
+
+	/**
+	 *	Method publish. Called by the producer only.
+	 *	Makes the slots up to the given sequence visible to the first consumer stage.
+	 *	@param sequence long representing the last filled slot.
+	 */
+	public void publish(long sequence) {
+		cursor.lazySet(sequence);
+	}
+
+	/**
+	 *	Method available.
+	 *	@param consumer int representing the consumer stage.
+	 *	@return The last sequence the stage may process.
+	 */
+	public long available(int consumer) {
+		return consumer == 0 ? cursor.get() : sequences[consumer - 1].get();
+	}
+
+	/**
+	 *	Method processed.
+	 *	@param consumer int representing the consumer stage.
+	 *	@return The last sequence released by the stage.
+	 */
+	public long processed(int consumer) {
+		return sequences[consumer].get();
+	}
+
+	/**
+	 *	Method release. Called by the given consumer stage only.
+	 *	Hands the slots up to the given sequence over to the next stage (or back to the producer).
+	 *	@param consumer int representing the consumer stage.
+	 *	@param sequence long representing the last processed slot.
+	 */
+	public void release(int consumer, long sequence) {
+		sequences[consumer].lazySet(sequence);
+	}
+
+	/**
+	 *	Method datagram.
+	 *	@param sequence long representing a slot.
+	 *	@return The datagram buffer of the slot.
+	 */
+	public ByteBuffer datagram(long sequence) {
+		return datagrams[(int) sequence & mask];
+	}
+
+	/**
+	 *	Method port.
+	 *	@param sequence long representing a slot.
+	 *	@return The port stored in the slot (source port of a received datagram, destination port of a datagram to send).
+	 */
+	public int port(long sequence) {
+		return ports[(int) sequence & mask];
+	}
+
+	/**
+	 *	Method setPort.
+	 *	@param sequence long representing a slot.
+	 *	@param port int representing the port to store in the slot.
+	 */
+	public void setPort(long sequence, int port) {
+		ports[(int) sequence & mask] = port;
+	}
+
+	/**
+	 *	Method decoded.
+	 *	@param sequence long representing a slot.
+	 *	@return The array of the slot receiving the decoded datagram.
+	 */
+	public int[] decoded(long sequence) {
+		return decoded[(int) sequence & mask];
+	}
+
+	/**
+	 *	Method decodedLength.
+	 *	@param sequence long representing a slot.
+	 *	@return The length of the decoded packet stored in the slot, -1 if the datagram was dropped.
+	 */
+	public int decodedLength(long sequence) {
+		return decodedLengths[(int) sequence & mask];
+	}
+
+	/**
+	 *	Method setDecodedLength.
+	 *	@param sequence long representing a slot.
+	 *	@param length int representing the length of the decoded packet, -1 if the datagram was dropped.
+	 */
+	public void setDecodedLength(long sequence, int length) {
+		decodedLengths[(int) sequence & mask] = length;
+	}
+
+	/**
+	 *	Method size.
+	 *	@return The number of slots of the ring.
+	 */
+	public int size() {
+		return datagrams.length;
+	}
+}
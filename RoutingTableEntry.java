@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /*
     @author (classes and interfaces only, required)
     @version (classes and interfaces only, required. See footnote 1)
@@ -17,6 +19,11 @@ public class RoutingTableEntry {
 	private int first_hop_id;
 	private int cost;
 	private boolean garbage = false;
+	private float penalty = 0;
+	private long penalty_time = 0;
+	private boolean suppressed = false;
+	private byte[] rib_in_metrics = null;
+	private long[] rib_in_times = null;
 	
 	/**
 	 *	Class constructor.
@@ -102,5 +109,104 @@ public class RoutingTableEntry {
 	public void setGarbage(boolean garbage) {
 		this.garbage = garbage;
 	}
+
+	/**
+	 *	Method getPenalty.
+	 *	Getter on the attribute penalty.
+	 *	@return float representing the flap damping penalty of the route, as it was at penalty_time.
+	 */
+	public float getPenalty() {
+		return penalty;
+	}
+
+	/**
+	 *	Method getPenalty_time.
+	 *	Getter on the attribute penalty_time.
+	 *	@return long representing the time (in milliseconds) at which the penalty was last updated.
+	 */
+	public long getPenalty_time() {
+		return penalty_time;
+	}
+
+	/**
+	 *	Method setPenalty.
+	 *	Setter of the attributes penalty and penalty_time.
+	 *	@param penalty float representing the flap damping penalty of the route.
+	 *	@param penalty_time long representing the time (in milliseconds) at which the penalty was computed.
+	 */
+	public void setPenalty(float penalty, long penalty_time) {
+		this.penalty = penalty;
+		this.penalty_time = penalty_time;
+	}
+
+	/**
+	 *	Method isSuppressed.
+	 *	Getter on the attribute suppressed.
+	 *	@return true if the route is held down by flap damping, false otherwise.
+	 */
+	public boolean isSuppressed() {
+		return suppressed;
+	}
+
+	/**
+	 *	Method setSuppressed.
+	 *	Setter of the attribute suppressed.
+	 *	@param suppressed boolean representing the value to set to the attribute suppressed.
+	 */
+	public void setSuppressed(boolean suppressed) {
+		this.suppressed = suppressed;
+	}
+
+	/**
+	 *	Method allocateRibIn.
+	 *	Allocates the Adj-RIB-In of the route: the last metric advertised by each neighbor and when it was heard. All metrics start unreachable.
+	 *	@param neighbors int representing the number of neighbors of the router.
+	 *	@param infinity int representing the unreachable metric.
+	 */
+	public void allocateRibIn(int neighbors, int infinity) {
+		rib_in_metrics = new byte[neighbors];
+		rib_in_times = new long[neighbors];
+		Arrays.fill(rib_in_metrics, (byte) infinity);
+	}
+
+	/**
+	 *	Method hasRibIn.
+	 *	@return true if the route keeps the routes advertised by each neighbor (learned routes), false otherwise (local routes).
+	 */
+	public boolean hasRibIn() {
+		return rib_in_metrics != null;
+	}
+
+	/**
+	 *	Method getRibInMetric.
+	 *	Getter on the Adj-RIB-In.
+	 *	@param neighbor int representing the index of the neighbor in the output ports.
+	 *	@return int representing the last metric (link cost included) advertised by the neighbor.
+	 */
+	public int getRibInMetric(int neighbor) {
+		return rib_in_metrics[neighbor];
+	}
+
+	/**
+	 *	Method getRibInTime.
+	 *	Getter on the Adj-RIB-In.
+	 *	@param neighbor int representing the index of the neighbor in the output ports.
+	 *	@return long representing the time (in milliseconds) at which the neighbor's metric was last heard.
+	 */
+	public long getRibInTime(int neighbor) {
+		return rib_in_times[neighbor];
+	}
+
+	/**
+	 *	Method setRibIn.
+	 *	Setter of the Adj-RIB-In.
+	 *	@param neighbor int representing the index of the neighbor in the output ports.
+	 *	@param metric int representing the metric (link cost included) advertised by the neighbor.
+	 *	@param time long representing the time (in milliseconds) at which the metric was heard.
+	 */
+	public void setRibIn(int neighbor, int metric, long time) {
+		rib_in_metrics[neighbor] = (byte) metric;
+		rib_in_times[neighbor] = time;
+	}
 	
 }
@@ -0,0 +1,196 @@
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ *	Abstract class Scheduler. Holds the pending timers of one or several daemons in a single event queue and runs them in deadline order.
+ *	The source of time is left to the subclasses: the WallClockScheduler follows the real time, the SimulatedScheduler jumps from one event to the next.
+ *	Timers are only ever run by the thread calling runDue (or advance), so they never race with the packet processing of that thread.
+ *	@see WallClockScheduler
+ *	@see SimulatedScheduler
+ *	@see Daemon
+ */
+public abstract class Scheduler {
+
+	private PriorityQueue<Task> queue = new PriorityQueue<Task>();
+	private long sequence = 0;
+	private Random random;
+
+	/**
+	 *	Class constructor.
+	 *	@param random Random used by the daemons for their jitter, seeded for a deterministic run.
+	 */
+	protected Scheduler(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 *	Abstract method now.
+	 *	@return The current time of this scheduler, in milliseconds.
+	 */
+	public abstract long now();
+
+	/**
+	 *	Method random.
+	 *	@return The Random shared by the daemons using this scheduler.
+	 */
+	public Random random() {
+		return random;
+	}
+
+	/**
+	 *	Method schedule.
+	 *	Schedules a task to run once after the given delay.
+	 *	@param runnable Runnable to run when the timer expires.
+	 *	@param delay long representing the delay in milliseconds.
+	 *	@return The Task, which can be cancelled or rescheduled.
+	 */
+	public Task schedule(Runnable runnable, long delay) {
+		Task task = newTask(runnable);
+		task.reschedule(delay);
+		return task;
+	}
+
+	/**
+	 *	Method newTask.
+	 *	Creates a task which is not scheduled yet, to be started later with Task#reschedule.
+	 *	@param runnable Runnable to run when the timer expires.
+	 *	@return The idle Task.
+	 */
+	public Task newTask(Runnable runnable) {
+		return new Task(runnable);
+	}
+
+	/**
+	 *	Method runDue.
+	 *	Runs, in deadline order, every task whose deadline is not after now().
+	 *	@return The number of tasks run.
+	 */
+	public int runDue() {
+		return runUntil(now());
+	}
+
+	/**
+	 *	Protected method runUntil.
+	 *	Runs, in deadline order, every task whose deadline is not after the given time.
+	 *	@param time long representing the time up to which the tasks are run, in milliseconds.
+	 *	@return The number of tasks run.
+	 */
+	protected int runUntil(long time) {
+		int count = 0;
+		Task task;
+		while((task = queue.peek()) != null && task.queuedTime <= time) {
+			queue.poll();
+			task.queued = false;
+			if(task.cancelled) {
+				continue;
+			}
+			if(task.deadline > task.queuedTime) {
+				// the task was pushed back while queued, queue it again at its real deadline.
+				enqueue(task);
+				continue;
+			}
+			onRun(task.deadline);
+			task.cancelled = true;
+			task.runnable.run();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 *	Protected method nextDeadline.
+	 *	@return The deadline of the earliest queued task, Long.MAX_VALUE if none is queued.
+	 */
+	protected long nextDeadline() {
+		Task task = queue.peek();
+		return task == null ? Long.MAX_VALUE : task.queuedTime;
+	}
+
+	/**
+	 *	Protected method onRun.
+	 *	Called just before a task runs; lets a simulated clock jump to the task's deadline.
+	 *	@param deadline long representing the deadline of the task about to run.
+	 */
+	protected void onRun(long deadline) {
+	}
+
+	/**
+	 *	Private method enqueue.
+	 *	@param task Task to add to the event queue at its deadline.
+	 */
+	private void enqueue(Task task) {
+		task.queuedTime = task.deadline;
+		task.sequence = sequence++;
+		task.queued = true;
+		queue.add(task);
+	}
+
+	/**
+	 *	Internal class Task. A one-shot timer of the scheduler, which can be cancelled and rescheduled any number of times.
+	 */
+	public class Task implements Comparable<Task> {
+
+		private Runnable runnable;
+		private long deadline;
+		private long queuedTime;
+		private long sequence;
+		private boolean queued = false;
+		private boolean cancelled = true;
+
+		/**
+		 *	Class constructor.
+		 *	@param runnable Runnable to run when the timer expires.
+		 */
+		private Task(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		/**
+		 *	Method reschedule.
+		 *	(Re)starts the timer so that it expires after the given delay, whether it was pending, cancelled or already run.
+		 *	Pushing back a pending timer does not touch the event queue, the task is moved when its old deadline is reached.
+		 *	@param delay long representing the delay in milliseconds.
+		 */
+		public void reschedule(long delay) {
+			deadline = now() + delay;
+			cancelled = false;
+			if(queued && deadline < queuedTime) {
+				queue.remove(this);
+				queued = false;
+			}
+			if(!queued) {
+				enqueue(this);
+			}
+		}
+
+		/**
+		 *	Method cancel.
+		 *	Stops the timer; it will not run unless it is rescheduled.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 *	Method isPending.
+		 *	@return true if the timer will run, false if it is cancelled or has already run.
+		 */
+		public boolean isPending() {
+			return !cancelled;
+		}
+
+		/**
+		 *	Overridden method compareTo (from Comparable).
+		 *	Orders the tasks by deadline, then by scheduling order so that runs are deterministic.
+		 *	@param other Task to compare to.
+		 *	@return A negative integer, zero, or a positive integer as this task runs before, with or after the other one.
+		 */
+		@Override
+		public int compareTo(Task other) {
+			if(queuedTime != other.queuedTime) {
+				return Long.compare(queuedTime, other.queuedTime);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+import java.util.Random;
+
+/**
+ *	Class SimulatedScheduler. Discrete-event scheduler: the time only moves forward when advance is called, jumping directly from one event to the next.
+ *	Hours of protocol time therefore run in as long as it takes to process their events, and a run with the same seed is always the same.
+ *	@see Scheduler
+ *	@see Simulation
+ */
+public class SimulatedScheduler extends Scheduler {
+
+	private long time = 0;
+
+	/**
+	 *	Class constructor.
+	 *	Creates a scheduler whose time starts at 0.
+	 *	@param seed long used to seed the Random shared by the daemons.
+	 */
+	public SimulatedScheduler(long seed) {
+		super(new Random(seed));
+	}
+
+	/**
+	 *	Overridden method now (from Scheduler).
+	 *	@return The simulated time, in milliseconds.
+	 */
+	@Override
+	public long now() {
+		return time;
+	}
+
+	/**
+	 *	Method advance.
+	 *	Runs every event of the next duration milliseconds in order, including the events they schedule, then sets the time to the end of the duration.
+	 *	@param duration long representing the simulated time to go through, in milliseconds.
+	 *	@return The number of tasks run.
+	 */
+	public int advance(long duration) {
+		long end = time + duration;
+		int count = runUntil(end);
+		time = end;
+		return count;
+	}
+
+	/**
+	 *	Method advanceToNext.
+	 *	Jumps to the earliest pending event, if any, and runs every event due at that time.
+	 *	@return The number of tasks run.
+	 */
+	public int advanceToNext() {
+		long next = nextDeadline();
+		if(next == Long.MAX_VALUE) {
+			return 0;
+		}
+		time = Math.max(time, next);
+		return runUntil(time);
+	}
+
+	/**
+	 *	Overridden method onRun (from Scheduler).
+	 *	Moves the simulated time to the deadline of the task about to run.
+	 *	@param deadline long representing the deadline of the task about to run.
+	 */
+	@Override
+	protected void onRun(long deadline) {
+		time = Math.max(time, deadline);
+	}
+}
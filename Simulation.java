@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *	Class Simulation. Runs several daemons in-process on a shared SimulatedScheduler, their packets being carried by an in-memory transport instead of UDP.
+ *	Hours of protocol time run in seconds and a run with the same seed always gives the same result.
+ *	Usage: java Simulation &lt;duration in seconds&gt; &lt;config file&gt;... [seed &lt;n&gt;] [timers &lt;periodic&gt; &lt;timeout&gt; &lt;garbage&gt;] [down &lt;router&gt;@&lt;second&gt;] [up &lt;router&gt;@&lt;second&gt;]
+ *	A router which is down neither sends nor receives packets, as if all its links were cut.
+ *	@see SimulatedScheduler
+ *	@see Transport
+ *	@see Daemon#setTransport(Transport transport)
+ */
+public class Simulation {
+
+	private final static String ROUTER_ID = "router-id";
+	private final static String INPUT_PORTS = "input-ports";
+	private final static String OUTPUT_PORTS = "output-ports";
+	private final static String TIMERS = "timers";
+	private final static String DAMPING = "damping";
+	private final static String HELLO = "hello";
+	private final static String STATIC_ROUTES = "static-routes";
+	final private static long LINK_DELAY = 1;
+
+	private SimulatedScheduler scheduler;
+	private Map<Integer, Daemon> daemons = new HashMap<Integer, Daemon>();
+	private Map<Integer, Integer> portOwners = new HashMap<Integer, Integer>();
+	private Set<Integer> downRouters = new HashSet<Integer>();
+	private long delivered = 0;
+	private long dropped = 0;
+
+	/**
+	 *	Class constructor.
+	 *	@param seed long used to seed the simulated scheduler.
+	 */
+	public Simulation(long seed) {
+		scheduler = new SimulatedScheduler(seed);
+	}
+
+	/**
+	 *	Program main method.
+	 *	Parses the arguments, builds the routers, runs the simulation and prints the routing tables reached.
+	 *	@param args Program input arguments.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.out.println("Usage: java Simulation <duration in seconds> <config file>... [seed <n>] [timers <periodic> <timeout> <garbage>] [down <router>@<second>] [up <router>@<second>]");
+			return;
+		}
+		long duration = Long.parseLong(args[0]) * 1000;
+		long seed = 0;
+		long[] timers = null;
+		List<String> files = new ArrayList<String>();
+		List<String[]> events = new ArrayList<String[]>();
+		for(int i = 1; i < args.length; i++) {
+			if(args[i].equals("seed") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else if(args[i].equals(TIMERS) && i + 3 < args.length) {
+				timers = new long[] {Long.parseLong(args[i+1]), Long.parseLong(args[i+2]), Long.parseLong(args[i+3])};
+				i += 3;
+			} else if((args[i].equals("down") || args[i].equals("up")) && i + 1 < args.length) {
+				events.add(new String[] {args[i], args[++i]});
+			} else {
+				files.add(args[i]);
+			}
+		}
+
+		Simulation simulation = new Simulation(seed);
+		for(String file: files) {
+			Map<String, Object> config = Parser.ParseConfig(new String[] {file});
+			if(config == null) {
+				System.out.println("Error parsing config file " + file + ".");
+				return;
+			}
+			if(timers == null && config.containsKey(TIMERS)) {
+				timers = (long[]) config.get(TIMERS);
+			}
+			Daemon daemon = simulation.addRouter((int) config.get(ROUTER_ID), (int[]) config.get(INPUT_PORTS), (int[][]) config.get(OUTPUT_PORTS));
+			if(config.containsKey(DAMPING)) {
+				float[] damping = (float[]) config.get(DAMPING);
+				daemon.setDamping((long) damping[0], damping[1], damping[2]);
+			}
+			if(config.containsKey(HELLO)) {
+				long[] hello = (long[]) config.get(HELLO);
+				daemon.enableHello(hello[0], (int) hello[1]);
+			}
+			if(config.containsKey(STATIC_ROUTES)) {
+				daemon.importStaticRoutes((String) config.get(STATIC_ROUTES));
+			}
+		}
+		for(String[] event: events) {
+			String[] target = event[1].split("@");
+			simulation.scheduleState(Integer.parseInt(target[0]), event[0].equals("down"), Long.parseLong(target[1]) * 1000);
+		}
+
+		long start = System.nanoTime();
+		simulation.start(timers);
+		int tasks = simulation.scheduler.advance(duration);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+
+		simulation.printTables();
+		System.out.println("Simulated " + (duration / 1000) + " s of protocol time in " + elapsed + " ms: " + tasks + " events, " + simulation.delivered + " packets delivered, " + simulation.dropped + " dropped.");
+		System.exit(0);
+	}
+
+	/**
+	 *	Method addRouter.
+	 *	Creates a daemon sharing the simulated scheduler and sending its packets through the simulation.
+	 *	@param router_id int representing the unique identification of the router.
+	 *	@param input_ports Array of int representing the input ports of the router, used to route the packets sent to them.
+	 *	@param output_ports Array of array of int representing the output ports of the router.
+	 *	@return The daemon of the router.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public Daemon addRouter(final int router_id, int[] input_ports, int[][] output_ports) throws IOException {
+		Daemon daemon = new Daemon(router_id, new int[0], output_ports, scheduler);
+		daemon.setVerbose(false);
+		daemon.setTransport(new Transport() {
+			@Override
+			public int send(ByteBuffer datagram, int port) {
+				return deliver(router_id, datagram, port);
+			}
+		});
+		daemons.put(router_id, daemon);
+		for(int i = 0; i < input_ports.length; i++) {
+			portOwners.put(input_ports[i], router_id);
+		}
+		return daemon;
+	}
+
+	/**
+	 *	Method start.
+	 *	Sets up the routing tables and starts the periodic timers of all the routers.
+	 *	@param timers Array of long holding the periodic, timeout and garbage intervals, null for the defaults.
+	 */
+	public void start(long[] timers) {
+		for(Daemon daemon: daemons.values()) {
+			if(timers != null) {
+				daemon.setIntervals(timers[0], timers[1], timers[2]);
+			}
+			daemon.setupRoutingTable();
+			daemon.startPeriodicTimer();
+		}
+	}
+
+	/**
+	 *	Method scheduleState.
+	 *	Schedules a router to go down or to come back up.
+	 *	@param router_id int representing the router.
+	 *	@param down boolean set if the router goes down, unset if it comes back up.
+	 *	@param time long representing the simulated time of the event, in milliseconds.
+	 */
+	public void scheduleState(final int router_id, final boolean down, long time) {
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				System.out.println("[" + scheduler.now() / 1000 + " s] Router " + router_id + (down ? " down." : " up."));
+				if(down) {
+					downRouters.add(router_id);
+				} else {
+					downRouters.remove(router_id);
+				}
+			}
+		}, time - scheduler.now());
+	}
+
+	/**
+	 *	Private method deliver. This method is called by the routers' transports.
+	 *	Copies a datagram and hands it to the router owning the destination port after LINK_DELAY, unless one of the two routers is down.
+	 *	@param sender int representing the router sending the datagram.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@param port int representing the destination port.
+	 *	@return The number of bytes sent.
+	 */
+	private int deliver(int sender, ByteBuffer datagram, int port) {
+		int length = datagram.remaining();
+		Integer receiver = portOwners.get(port);
+		if(receiver == null || downRouters.contains(sender) || downRouters.contains(receiver)) {
+			dropped++;
+			return length;
+		}
+		final Daemon target = daemons.get(receiver);
+		final ByteBuffer copy = ByteBuffer.allocate(length);
+		copy.put(datagram);
+		copy.flip();
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				target.replayPacket(copy);
+			}
+		}, LINK_DELAY);
+		delivered++;
+		return length;
+	}
+
+	/**
+	 *	Private method printTables. This method is called by the main method.
+	 *	Displays the routing table reached by each router.
+	 */
+	private void printTables() {
+		for(Map.Entry<Integer, Daemon> router: daemons.entrySet()) {
+			System.out.println("----- Routing Table of " + router.getKey() + (downRouters.contains(router.getKey()) ? " (down)" : "") + " -----");
+			for(RoutingTableEntry entry: router.getValue().snapshotRoutingTable()) {
+				System.out.println("Dest: " + entry.getDestination_id() + ", First Hop: " + entry.getFirst_hop_id() + ", Cost: " + entry.getCost() + ", Garbage: " + (entry.isGarbage() ? "Active" : "Inactive") + (entry.isSuppressed() ? ", Suppressed" : ""));
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ *	Class StaticRoutes. Loads a large set of static (or redistributed) routes from a memory-mapped route file, to be imported in bulk into a daemon's routing table.
+ *	Two formats are read:
+ *	<ul>
+ *	<li>binary: the magic "RIPRTE01", the number of routes (int), then for each route the destination (int) and the cost (byte);</li>
+ *	<li>text: one route per line, the destination and the cost separated by spaces, tabs or a comma; a '#' starts a comment.</li>
+ *	</ul>
+ *	The text is parsed directly from the mapped bytes, without building a String per line.
+ *	Usage: java StaticRoutes &lt;route file&gt; &lt;binary file&gt; converts a route file to the binary format; java StaticRoutes generate &lt;count&gt; &lt;first destination&gt; &lt;binary file&gt; writes count consecutive destinations, for load tests.
+ *	@see Daemon#importStaticRoutes(String file_name)
+ */
+public class StaticRoutes {
+
+	final static byte[] MAGIC = {'R', 'I', 'P', 'R', 'T', 'E', '0', '1'};
+	final static int HEADER_SIZE = 12;
+	final static int RECORD_SIZE = 5;
+	final private static int INFINITY = 16;
+
+	private int[] destinations;
+	private int[] costs;
+	private int size = 0;
+
+	/**
+	 *	Class constructor.
+	 *	@param capacity int representing the number of routes expected.
+	 */
+	private StaticRoutes(int capacity) {
+		destinations = new int[Math.max(capacity, 16)];
+		costs = new int[destinations.length];
+	}
+
+	/**
+	 *	Program main method.
+	 *	Converts a route file to the binary format, or generates a binary route file.
+	 *	@param args Program input arguments.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		StaticRoutes routes;
+		String output;
+		if(args.length == 4 && args[0].equals("generate")) {
+			int count = Integer.parseInt(args[1]);
+			int first = Integer.parseInt(args[2]);
+			routes = new StaticRoutes(count);
+			for(int i = 0; i < count; i++) {
+				routes.add(first + i, 1 + i % (INFINITY - 1));
+			}
+			output = args[3];
+		} else if(args.length == 2) {
+			routes = load(args[0]);
+			if(routes == null) {
+				return;
+			}
+			output = args[1];
+		} else {
+			System.out.println("Usage: java StaticRoutes <route file> <binary file>");
+			System.out.println("       java StaticRoutes generate <count> <first destination> <binary file>");
+			return;
+		}
+		routes.write(output);
+		System.out.println("Wrote " + routes.size() + " routes to " + output);
+	}
+
+	/**
+	 *	Static method load. This method is called by the daemon's importStaticRoutes method.
+	 *	Maps a route file and reads it, in the binary format if it starts with the magic, as text otherwise.
+	 *	@param file_name String representing the path of the route file.
+	 *	@return The routes read, or null if the file is not valid.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public static StaticRoutes load(String file_name) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(file_name, "r");
+		FileChannel channel = file.getChannel();
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		file.close();
+		boolean binary = map.limit() >= HEADER_SIZE;
+		for(int i = 0; binary && i < MAGIC.length; i++) {
+			binary = map.get(i) == MAGIC[i];
+		}
+		StaticRoutes routes = binary ? readBinary(map) : readText(map);
+		if(routes == null) {
+			System.out.println("Invalid route file: " + file_name);
+		}
+		return routes;
+	}
+
+	/**
+	 *	Private static method readBinary. This method is called by the method load.
+	 *	@param map MappedByteBuffer holding a binary route file.
+	 *	@return The routes read, or null if the file is truncated or holds an invalid route.
+	 */
+	private static StaticRoutes readBinary(MappedByteBuffer map) {
+		int count = map.getInt(MAGIC.length);
+		if(count < 0 || (long) HEADER_SIZE + (long) count * RECORD_SIZE > map.limit()) {
+			return null;
+		}
+		StaticRoutes routes = new StaticRoutes(count);
+		map.position(HEADER_SIZE);
+		for(int i = 0; i < count; i++) {
+			int destination = map.getInt();
+			int cost = map.get();
+			if(!valid(destination, cost)) {
+				return null;
+			}
+			routes.add(destination, cost);
+		}
+		return routes;
+	}
+
+	/**
+	 *	Private static method readText. This method is called by the method load.
+	 *	Reads the numbers of each line straight from the mapped bytes.
+	 *	@param map MappedByteBuffer holding a text route file.
+	 *	@return The routes read, or null if a line is not a valid route (the line number is printed).
+	 */
+	private static StaticRoutes readText(MappedByteBuffer map) {
+		StaticRoutes routes = new StaticRoutes(map.limit() / 8);
+		int[] fields = new int[2];
+		int field = 0;
+		boolean inNumber = false;
+		boolean comment = false;
+		int line = 1;
+		for(int i = 0; i <= map.limit(); i++) {
+			byte b = i < map.limit() ? map.get(i) : (byte) '\n';
+			if(b == '\n') {
+				if(inNumber) {
+					field++;
+				}
+				if(field == 2 && valid(fields[0], fields[1])) {
+					routes.add(fields[0], fields[1]);
+				} else if(field != 0) {
+					System.out.println("Invalid route at line " + line);
+					return null;
+				}
+				field = 0;
+				inNumber = false;
+				comment = false;
+				line++;
+			} else if(comment || b == '\r') {
+				continue;
+			} else if(b == '#') {
+				comment = true;
+			} else if(b >= '0' && b <= '9') {
+				if(!inNumber) {
+					if(field == 2) {
+						System.out.println("Invalid route at line " + line);
+						return null;
+					}
+					fields[field] = 0;
+					inNumber = true;
+				}
+				if(fields[field] > (Integer.MAX_VALUE - 9) / 10) {
+					System.out.println("Invalid route at line " + line);
+					return null;
+				}
+				fields[field] = fields[field] * 10 + (b - '0');
+			} else if(b == ' ' || b == '\t' || b == ',') {
+				if(inNumber) {
+					field++;
+					inNumber = false;
+				}
+			} else {
+				System.out.println("Invalid route at line " + line);
+				return null;
+			}
+		}
+		return routes;
+	}
+
+	/**
+	 *	Private static method valid.
+	 *	@param destination int representing the destination of a route.
+	 *	@param cost int representing the cost of a route.
+	 *	@return true if the destination is positive and the cost lower than INFINITY, false otherwise.
+	 */
+	private static boolean valid(int destination, int cost) {
+		return destination > 0 && cost >= 0 && cost < INFINITY;
+	}
+
+	/**
+	 *	Private method add.
+	 *	Appends a route, growing the arrays if needed.
+	 *	@param destination int representing the destination of the route.
+	 *	@param cost int representing the cost of the route.
+	 */
+	private void add(int destination, int cost) {
+		if(size == destinations.length) {
+			destinations = Arrays.copyOf(destinations, size * 2);
+			costs = Arrays.copyOf(costs, size * 2);
+		}
+		destinations[size] = destination;
+		costs[size] = cost;
+		size++;
+	}
+
+	/**
+	 *	Method write.
+	 *	Writes the routes to a file in the binary format, through a mapped buffer.
+	 *	@param file_name String representing the path of the binary file (created or truncated).
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	public void write(String file_name) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(file_name, "rw");
+		file.setLength(0);
+		FileChannel channel = file.getChannel();
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) size * RECORD_SIZE);
+		map.put(MAGIC);
+		map.putInt(size);
+		for(int i = 0; i < size; i++) {
+			map.putInt(destinations[i]);
+			map.put((byte) costs[i]);
+		}
+		map.force();
+		file.close();
+	}
+
+	/**
+	 *	Method size.
+	 *	@return The number of routes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *	Method destination.
+	 *	@param index int representing a route.
+	 *	@return The destination of the route.
+	 */
+	public int destination(int index) {
+		return destinations[index];
+	}
+
+	/**
+	 *	Method cost.
+	 *	@param index int representing a route.
+	 *	@return The cost of the route.
+	 */
+	public int cost(int index) {
+		return costs[index];
+	}
+}
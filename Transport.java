@@ -0,0 +1,20 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *	Interface Transport. Replaces the UDP sockets of a daemon, so that several daemons can exchange their packets in-process.
+ *	@see Daemon#setTransport(Transport transport)
+ *	@see Simulation
+ */
+public interface Transport {
+
+	/**
+	 *	Method send.
+	 *	Sends a datagram to the given port.
+	 *	@param datagram ByteBuffer holding the datagram between its position and its limit.
+	 *	@param port int representing the destination port.
+	 *	@return The number of bytes sent.
+	 *	@throws IOException If an input or output exception occurred.
+	 */
+	int send(ByteBuffer datagram, int port) throws IOException;
+}
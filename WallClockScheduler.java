@@ -0,0 +1,28 @@
+import java.util.Random;
+
+/**
+ *	Class WallClockScheduler. Scheduler following the real time; its due tasks are run by the main loop.
+ *	@see Scheduler
+ *	@see Main
+ */
+public class WallClockScheduler extends Scheduler {
+
+	private long start = System.nanoTime();
+
+	/**
+	 *	Class constructor.
+	 *	Creates a scheduler whose time starts at 0.
+	 */
+	public WallClockScheduler() {
+		super(new Random());
+	}
+
+	/**
+	 *	Overridden method now (from Scheduler).
+	 *	@return The number of milliseconds elapsed since the creation of the scheduler.
+	 */
+	@Override
+	public long now() {
+		return (System.nanoTime() - start) / 1000000;
+	}
+}